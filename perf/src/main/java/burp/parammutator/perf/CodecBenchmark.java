@@ -0,0 +1,75 @@
+package burp.parammutator.perf;
+
+import burp.parammutator.model.CodecOp;
+import burp.parammutator.util.CodecPipeline;
+import burp.parammutator.util.CodecUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Codec chains, interpreted (CodecUtil) and compiled (CodecPipeline), on short and long values.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CodecBenchmark {
+
+    private static final List<CodecOp> DECODE = List.of(CodecOp.URL_DECODE, CodecOp.BASE64_DECODE);
+    private static final List<CodecOp> ENCODE = List.of(CodecOp.BASE64_ENCODE, CodecOp.URL_ENCODE);
+
+    @Param({"16", "4096"})
+    public int length;
+
+    private String plain;
+    private String encoded;
+    private CodecPipeline decodePipeline;
+    private CodecPipeline encodePipeline;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + i % 26));
+            if (i % 11 == 10) {
+                sb.setCharAt(i, '&');
+            }
+        }
+        plain = sb.toString();
+        encoded = CodecUtil.applyEncodeChain(plain, ENCODE);
+        decodePipeline = CodecPipeline.compileDecode(DECODE);
+        encodePipeline = CodecPipeline.compileEncode(ENCODE);
+    }
+
+    @Benchmark
+    public String decodeChain() {
+        return CodecUtil.applyDecodeChain(encoded, DECODE);
+    }
+
+    @Benchmark
+    public String encodeChain() {
+        return CodecUtil.applyEncodeChain(plain, ENCODE);
+    }
+
+    @Benchmark
+    public String decodePipeline() {
+        return decodePipeline.apply(encoded);
+    }
+
+    @Benchmark
+    public String encodePipeline() {
+        return encodePipeline.apply(plain);
+    }
+}
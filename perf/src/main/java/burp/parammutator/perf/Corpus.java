@@ -0,0 +1,206 @@
+package burp.parammutator.perf;
+
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.handler.HttpRequestToBeSent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Loads recorded requests for offline replay: a directory with one raw HTTP request per file,
+// a HAR export (.har) or a Burp "Save items" XML export (.xml).
+public final class Corpus {
+
+    public static final class Entry {
+        private final String source;
+        private final HttpRequestToBeSent request;
+
+        Entry(String source, HttpRequestToBeSent request) {
+            this.source = source;
+            this.request = request;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public HttpRequestToBeSent getRequest() {
+            return request;
+        }
+    }
+
+    private Corpus() { }
+
+    public static List<Entry> load(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            return loadDirectory(path);
+        }
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".har")) {
+            return loadHar(path);
+        }
+        if (name.endsWith(".xml")) {
+            return loadBurpXml(path);
+        }
+        return List.of(entry(path.toString(), Files.readAllBytes(path), null));
+    }
+
+    private static List<Entry> loadDirectory(Path dir) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                entries.add(entry(f.getFileName().toString(), Files.readAllBytes(f), null));
+            }
+        }
+        return entries;
+    }
+
+    private static List<Entry> loadHar(Path file) throws IOException {
+        JsonNode entries = new ObjectMapper().readTree(file.toFile()).path("log").path("entries");
+        List<Entry> out = new ArrayList<>();
+        int i = 0;
+        for (JsonNode e : entries) {
+            JsonNode req = e.path("request");
+            URI uri = URI.create(req.path("url").asText());
+            String target = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) {
+                target += "?" + uri.getRawQuery();
+            }
+            String version = req.path("httpVersion").asText("HTTP/1.1");
+            if (!version.toUpperCase(Locale.ROOT).startsWith("HTTP/1")) {
+                version = "HTTP/1.1";
+            }
+
+            StringBuilder head = new StringBuilder();
+            head.append(req.path("method").asText("GET")).append(' ').append(target).append(' ')
+                    .append(version).append("\r\n");
+            boolean hasHost = false;
+            for (JsonNode h : req.path("headers")) {
+                String name = h.path("name").asText();
+                // HTTP/2 pseudo-headers have no HTTP/1 equivalent in the header block
+                if (name.startsWith(":")) {
+                    continue;
+                }
+                hasHost |= name.equalsIgnoreCase("Host");
+                head.append(name).append(": ").append(h.path("value").asText()).append("\r\n");
+            }
+            if (!hasHost) {
+                head.append("Host: ").append(uri.getHost()).append("\r\n");
+            }
+            head.append("\r\n");
+            JsonNode post = req.path("postData");
+            if (!post.isMissingNode()) {
+                head.append(post.path("text").asText(""));
+            }
+
+            boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+            int port = uri.getPort() > 0 ? uri.getPort() : secure ? 443 : 80;
+            out.add(entry(file.getFileName() + "#" + i++, head.toString().getBytes(StandardCharsets.UTF_8),
+                    Stubs.service(uri.getHost(), port, secure)));
+        }
+        return out;
+    }
+
+    private static List<Entry> loadBurpXml(Path file) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        List<Entry> out = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader r = factory.createXMLStreamReader(in);
+            String host = null;
+            String protocol = "https";
+            int port = -1;
+            byte[] request = null;
+            int i = 0;
+            while (r.hasNext()) {
+                int ev = r.next();
+                if (ev == XMLStreamConstants.START_ELEMENT) {
+                    switch (r.getLocalName()) {
+                        case "item" -> {
+                            host = null;
+                            protocol = "https";
+                            port = -1;
+                            request = null;
+                        }
+                        case "host" -> host = r.getElementText().trim();
+                        case "port" -> port = Integer.parseInt(r.getElementText().trim());
+                        case "protocol" -> protocol = r.getElementText().trim();
+                        case "request" -> {
+                            boolean base64 = "true".equals(r.getAttributeValue(null, "base64"));
+                            String text = r.getElementText();
+                            request = base64
+                                    ? Base64.getMimeDecoder().decode(text)
+                                    : text.getBytes(StandardCharsets.ISO_8859_1);
+                        }
+                        default -> { }
+                    }
+                } else if (ev == XMLStreamConstants.END_ELEMENT && r.getLocalName().equals("item") && request != null) {
+                    boolean secure = "https".equalsIgnoreCase(protocol);
+                    HttpService service = host == null ? null
+                            : Stubs.service(host, port > 0 ? port : secure ? 443 : 80, secure);
+                    out.add(entry(file.getFileName() + "#" + i++, request, service));
+                }
+            }
+            r.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid Burp XML export: " + file + ": " + e.getMessage(), e);
+        }
+        return out;
+    }
+
+    private static Entry entry(String source, byte[] raw, HttpService service) {
+        byte[] normalized = normalizeLineEndings(raw);
+        if (service == null) {
+            service = serviceFromHost(normalized);
+        }
+        return new Entry(source, Stubs.request(normalized, service, true));
+    }
+
+    // Files saved by hand often use bare LF; the header block is rewritten to CRLF, the body is kept as is.
+    static byte[] normalizeLineEndings(byte[] raw) {
+        String text = new String(raw, StandardCharsets.ISO_8859_1);
+        if (text.contains("\r\n\r\n")) {
+            return raw;
+        }
+        int headerEnd = text.indexOf("\n\n");
+        String head = headerEnd < 0 ? text : text.substring(0, headerEnd);
+        String body = headerEnd < 0 ? "" : text.substring(headerEnd + 2);
+        head = head.replace("\r\n", "\n").replace("\n", "\r\n");
+        return (head + "\r\n\r\n" + body).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static HttpService serviceFromHost(byte[] raw) {
+        String text = new String(raw, StandardCharsets.ISO_8859_1);
+        for (String line : text.split("\r\n")) {
+            if (line.isEmpty()) {
+                break;
+            }
+            if (line.regionMatches(true, 0, "Host:", 0, 5)) {
+                String host = line.substring(5).trim();
+                int colon = host.lastIndexOf(':');
+                if (colon > 0 && host.indexOf(']') < colon) {
+                    int port = Integer.parseInt(host.substring(colon + 1));
+                    return Stubs.service(host.substring(0, colon), port, port != 80);
+                }
+                return Stubs.service(host, 443, true);
+            }
+        }
+        return Stubs.service("localhost", 443, true);
+    }
+}
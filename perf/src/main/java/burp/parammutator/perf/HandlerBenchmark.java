@@ -0,0 +1,59 @@
+package burp.parammutator.perf;
+
+import burp.api.montoya.http.handler.HttpRequestToBeSent;
+import burp.api.montoya.http.handler.RequestToBeSentAction;
+import burp.parammutator.http.ParamMutatorHttpHandler;
+import burp.parammutator.log.LogLevel;
+import burp.parammutator.log.Logger;
+import burp.parammutator.model.ExtensionConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// End-to-end cost of ParamMutatorHttpHandler.handleHttpRequestToBeSent per request shape and rule table size.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HandlerBenchmark {
+
+    @Param({"SMALL_GET", "JSON_1MB", "FORM_500"})
+    public Scenarios.Request request;
+
+    @Param({"10", "100", "1000"})
+    public int rules;
+
+    @Param({"INFO"})
+    public LogLevel logLevel;
+
+    private ParamMutatorHttpHandler handler;
+    private HttpRequestToBeSent requestToBeSent;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Stubs.install();
+        Logger.getInstance().setLogLevel(logLevel);
+        handler = new ParamMutatorHttpHandler(
+                new AtomicReference<>(new ExtensionConfig(Scenarios.rules(rules), true)));
+        requestToBeSent = Stubs.request(Scenarios.request(request));
+    }
+
+    @Benchmark
+    public RequestToBeSentAction handle() {
+        return handler.handleHttpRequestToBeSent(requestToBeSent);
+    }
+}
@@ -0,0 +1,74 @@
+package burp.parammutator.perf;
+
+import burp.parammutator.log.LogLevel;
+import burp.parammutator.log.Logger;
+import burp.parammutator.log.ParamLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Logger.log with a structured row and with a plain message; the ring stays at its byte budget,
+// so every measured append also pays for eviction.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LoggerBenchmark {
+
+    @Param({"1", "50"})
+    public int params;
+
+    private final Logger logger = Logger.getInstance();
+    private String[] names;
+    private String[] values;
+
+    @Setup
+    public void setup() {
+        logger.setLogLevel(LogLevel.INFO);
+        names = new String[params];
+        values = new String[params];
+        for (int i = 0; i < params; i++) {
+            names[i] = "field" + i;
+            values[i] = "value-" + i + "-mutated";
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        logger.clear();
+    }
+
+    @Benchmark
+    public void logParams() {
+        ParamLog log = new ParamLog(params);
+        for (int i = 0; i < params; i++) {
+            log.add(names[i], values[i], ParamLog.Kind.MUTATED);
+        }
+        logger.log(LogLevel.INFO, "https://example.com:443", "/api/items", log);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void logParamsContended() {
+        logParams();
+    }
+
+    @Benchmark
+    public void logMessage() {
+        logger.log(LogLevel.INFO, "https://example.com:443", "/api/items", "Exception mutating param id");
+    }
+}
@@ -0,0 +1,52 @@
+package burp.parammutator.perf;
+
+import burp.parammutator.model.RandomType;
+import burp.parammutator.util.RandomPool;
+import burp.parammutator.util.RandomPools;
+import burp.parammutator.util.RandomUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Random value generation inline (RandomUtil) versus served from a pre-generated pool.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RandomBenchmark {
+
+    @Param({"NUMERIC", "ALPHANUM", "UUID"})
+    public RandomType type;
+
+    @Param({"8", "64"})
+    public int length;
+
+    private RandomPool pool;
+
+    @Setup
+    public void setup() {
+        pool = RandomPools.forRule(type, length);
+    }
+
+    @Benchmark
+    public String inline() {
+        return RandomUtil.randomString(type, length);
+    }
+
+    @Benchmark
+    public String pooled() {
+        return pool.next();
+    }
+}
@@ -0,0 +1,208 @@
+package burp.parammutator.perf;
+
+import burp.api.montoya.http.handler.RequestToBeSentAction;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.parammutator.http.ParamMutatorHttpHandler;
+import burp.parammutator.log.LogLevel;
+import burp.parammutator.log.Logger;
+import burp.parammutator.metrics.HandlerMetrics;
+import burp.parammutator.metrics.LatencyHistogram;
+import burp.parammutator.model.ExtensionConfig;
+import burp.parammutator.model.ParamMutatorRule;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Headless replay of a recorded corpus through ParamMutatorHttpHandler, to size a rule set against
+// real traffic (and find slow regexes) before a run:
+//   java -cp param-mutator-perf.jar burp.parammutator.perf.ReplayRunner \
+//        --rules rules.json --corpus traffic.har [--threads 8] [--passes 5] [--warmup 1] [--out mutated/]
+public final class ReplayRunner {
+
+    private final ParamMutatorHttpHandler handler;
+    private final List<Corpus.Entry> corpus;
+    private final int threads;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicInteger changed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public ReplayRunner(List<ParamMutatorRule> rules, List<Corpus.Entry> corpus, int threads) {
+        this.handler = new ParamMutatorHttpHandler(new AtomicReference<>(
+                new ExtensionConfig(rules, true)));
+        this.corpus = corpus;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path rulesFile = null;
+        int syntheticRules = 0;
+        Path corpusPath = null;
+        Path out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int passes = 1;
+        int warmup = 1;
+        LogLevel level = LogLevel.INFO;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rules" -> rulesFile = Paths.get(args[++i]);
+                case "--synthetic-rules" -> syntheticRules = Integer.parseInt(args[++i]);
+                case "--corpus" -> corpusPath = Paths.get(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--passes" -> passes = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--out" -> out = Paths.get(args[++i]);
+                case "--log-level" -> level = LogLevel.valueOf(args[++i]);
+                default -> usage("Unknown option: " + args[i]);
+            }
+        }
+        if (corpusPath == null || (rulesFile == null && syntheticRules <= 0)) {
+            usage(null);
+        }
+
+        Stubs.install();
+        Logger.getInstance().setLogLevel(level);
+        List<ParamMutatorRule> rules = rulesFile != null ? RuleFile.load(rulesFile) : Scenarios.rules(syntheticRules);
+        List<Corpus.Entry> corpus = Corpus.load(corpusPath);
+        if (corpus.isEmpty()) {
+            usage("Corpus is empty: " + corpusPath);
+        }
+        System.out.printf("Loaded %d rules and %d requests; %d worker threads%n", rules.size(), corpus.size(), threads);
+
+        ReplayRunner runner = new ReplayRunner(rules, corpus, threads);
+        for (int i = 0; i < warmup; i++) {
+            runner.run(1, null);
+        }
+        runner.reset();
+        long elapsed = runner.run(passes, out);
+        runner.report(passes, elapsed, out);
+    }
+
+    private static void usage(String error) {
+        if (error != null) {
+            System.err.println(error);
+        }
+        System.err.println("Usage: ReplayRunner (--rules <rules.json> | --synthetic-rules <n>) --corpus <dir|file.har|file.xml>"
+                + " [--threads <n>] [--passes <n>] [--warmup <n>] [--out <dir>] [--log-level INFO|DEBUG]");
+        System.exit(2);
+    }
+
+    void reset() {
+        latency.reset();
+        allocatedBytes.set(0);
+        changed.set(0);
+        failed.set(0);
+        HandlerMetrics.getInstance().reset();
+    }
+
+    // Replays the corpus `passes` times across the worker threads; the last pass writes its output to `out`.
+    long run(int passes, Path out) throws Exception {
+        int total = corpus.size() * passes;
+        int lastPassStart = corpus.size() * (passes - 1);
+        AtomicInteger next = new AtomicInteger();
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (out != null) {
+            Files.createDirectories(out);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "replay-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        long start = System.nanoTime();
+        try {
+            Future<?>[] workers = new Future<?>[threads];
+            for (int w = 0; w < threads; w++) {
+                workers[w] = pool.submit(() -> {
+                    long allocStart = mx.getCurrentThreadAllocatedBytes();
+                    int i;
+                    while ((i = next.getAndIncrement()) < total) {
+                        Corpus.Entry entry = corpus.get(i % corpus.size());
+                        long t0 = System.nanoTime();
+                        RequestToBeSentAction action;
+                        try {
+                            action = handler.handleHttpRequestToBeSent(entry.getRequest());
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                            System.err.println(entry.getSource() + ": " + e);
+                            continue;
+                        }
+                        latency.record(System.nanoTime() - t0);
+
+                        HttpRequest result = action.request();
+                        if (i >= lastPassStart) {
+                            if (result != entry.getRequest()) {
+                                changed.incrementAndGet();
+                            }
+                            if (out != null) {
+                                write(out, i - lastPassStart, entry, result);
+                            }
+                        }
+                    }
+                    allocatedBytes.addAndGet(mx.getCurrentThreadAllocatedBytes() - allocStart);
+                    return null;
+                });
+            }
+            for (Future<?> f : workers) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void write(Path out, int index, Corpus.Entry entry, HttpRequest result) {
+        String name = String.format("%06d-%s.http", index, entry.getSource().replaceAll("[^A-Za-z0-9._#-]", "_"));
+        try {
+            Files.write(out.resolve(name), result.toString().getBytes(StandardCharsets.ISO_8859_1));
+        } catch (IOException e) {
+            System.err.println("Cannot write " + name + ": " + e.getMessage());
+        }
+    }
+
+    private void report(int passes, long elapsedNanos, Path out) {
+        long requests = latency.getCount();
+        double seconds = elapsedNanos / 1e9;
+        System.out.println();
+        System.out.printf("Requests:        %d (%d passes, %d failed)%n", requests, passes, failed.get());
+        System.out.printf("Mutated:         %d of %d in the last pass%n", changed.get(), corpus.size());
+        System.out.printf("Wall time:       %.3f s%n", seconds);
+        System.out.printf("Throughput:      %.0f req/s%n", requests / seconds);
+        System.out.printf("Latency (us):    p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f  mean %.1f%n",
+                latency.getPercentile(50) / 1e3, latency.getPercentile(90) / 1e3, latency.getPercentile(99) / 1e3,
+                latency.getPercentile(99.9) / 1e3, latency.getMax() / 1e3, latency.getMean() / 1e3);
+        System.out.printf("Allocated:       %.1f MB total, %.0f bytes/request%n",
+                allocatedBytes.get() / 1e6, requests == 0 ? 0.0 : (double) allocatedBytes.get() / requests);
+
+        HandlerMetrics metrics = HandlerMetrics.getInstance();
+        long planLookups = metrics.getPlanHits() + metrics.getPlanMisses();
+        System.out.printf("Match plans:     %d hits, %d misses (%.1f%% hit rate)%n", metrics.getPlanHits(),
+                metrics.getPlanMisses(), planLookups == 0 ? 0.0 : 100.0 * metrics.getPlanHits() / planLookups);
+        System.out.println();
+        System.out.printf("%-28s %10s %10s %10s %10s%n", "Stage", "count", "p50 us", "p99 us", "max us");
+        for (HandlerMetrics.Stage stage : HandlerMetrics.Stage.values()) {
+            LatencyHistogram h = metrics.histogram(stage);
+            System.out.printf("%-28s %10d %10.1f %10.1f %10.1f%n", stage.getLabel(), h.getCount(),
+                    h.getPercentile(50) / 1e3, h.getPercentile(99) / 1e3, h.getMax() / 1e3);
+        }
+        if (out != null) {
+            System.out.println();
+            System.out.println("Mutated requests written to " + out.toAbsolutePath());
+        }
+    }
+}
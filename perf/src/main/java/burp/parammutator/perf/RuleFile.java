@@ -0,0 +1,68 @@
+package burp.parammutator.perf;
+
+import burp.parammutator.model.CodecOp;
+import burp.parammutator.model.MutationMode;
+import burp.parammutator.model.ParamMutatorRule;
+import burp.parammutator.model.ParamMutatorRule.ParamPatternType;
+import burp.parammutator.model.PathMatchMode;
+import burp.parammutator.model.Position;
+import burp.parammutator.model.RandomType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads a rule set from JSON: an array of objects whose fields mirror the rule table columns, e.g.
+// {"pattern":"id","mode":"NORMAL","mutationMode":"RANDOM","type":"ALPHANUM","length":8,"position":"SUFFIX",
+//  "decodeChain":["URL_DECODE"],"encodeChain":["URL_ENCODE"],"pathEnabled":true,"pathPattern":"/api/.*","pathRegex":true}
+// "pathMode" ("EXACT", "GLOB" or "REGEX") takes precedence over the older "pathRegex" flag;
+// "hostPattern" (e.g. "*.example.com", "https://api.example.com:8443") scopes a rule to hosts.
+// Missing fields take the same defaults as a new row in the Configuration tab.
+public final class RuleFile {
+
+    private RuleFile() { }
+
+    public static List<ParamMutatorRule> load(Path file) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(file.toFile());
+        JsonNode array = root.isArray() ? root : root.path("rules");
+        if (!array.isArray()) {
+            throw new IOException("Expected a JSON array of rules (or an object with a \"rules\" array): " + file);
+        }
+        List<ParamMutatorRule> rules = new ArrayList<>();
+        for (JsonNode n : array) {
+            rules.add(new ParamMutatorRule(
+                    n.path("pattern").asText(""),
+                    ParamPatternType.valueOf(n.path("mode").asText("NORMAL")),
+                    MutationMode.valueOf(n.path("mutationMode").asText("RANDOM")),
+                    RandomType.valueOf(n.path("type").asText("NUMERIC")),
+                    Position.valueOf(n.path("position").asText("PREFIX")),
+                    n.path("length").asInt(4),
+                    n.path("text").asText("change_me"),
+                    codecs(n.path("decodeChain")),
+                    codecs(n.path("encodeChain")),
+                    n.path("pathEnabled").asBoolean(false),
+                    n.path("pathPattern").asText(""),
+                    pathMode(n),
+                    n.path("hostPattern").asText("")));
+        }
+        return rules;
+    }
+
+    private static PathMatchMode pathMode(JsonNode n) {
+        if (n.hasNonNull("pathMode")) {
+            return PathMatchMode.valueOf(n.path("pathMode").asText());
+        }
+        return n.path("pathRegex").asBoolean(false) ? PathMatchMode.REGEX : PathMatchMode.EXACT;
+    }
+
+    private static List<CodecOp> codecs(JsonNode chain) {
+        List<CodecOp> ops = new ArrayList<>();
+        for (JsonNode op : chain) {
+            ops.add(CodecOp.valueOf(op.asText()));
+        }
+        return ops;
+    }
+}
@@ -0,0 +1,110 @@
+package burp.parammutator.perf;
+
+import burp.parammutator.model.CodecOp;
+import burp.parammutator.model.MutationMode;
+import burp.parammutator.model.ParamMutatorRule;
+import burp.parammutator.model.ParamMutatorRule.ParamPatternType;
+import burp.parammutator.model.Position;
+import burp.parammutator.model.RandomType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Synthetic requests and rule tables shared by the benchmarks and the stress harness.
+public final class Scenarios {
+
+    public enum Request {
+        SMALL_GET,
+        JSON_1MB,
+        FORM_500
+    }
+
+    private Scenarios() { }
+
+    public static byte[] request(Request kind) {
+        return switch (kind) {
+            case SMALL_GET -> ("GET /api/items?id=42&q=test&page=1&sort=asc HTTP/1.1\r\n"
+                    + "Host: example.com\r\n"
+                    + "User-Agent: Mozilla/5.0\r\n"
+                    + "Accept: application/json\r\n"
+                    + "Cookie: session=abc123; theme=dark\r\n"
+                    + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            case JSON_1MB -> post("/api/import", "application/json", jsonBody(1 << 20));
+            case FORM_500 -> post("/account/update", "application/x-www-form-urlencoded", formBody(500));
+        };
+    }
+
+    private static byte[] post(String path, String contentType, String body) {
+        return ("POST " + path + " HTTP/1.1\r\n"
+                + "Host: example.com\r\n"
+                + "User-Agent: Mozilla/5.0\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + body.length() + "\r\n"
+                + "Cookie: session=abc123\r\n"
+                + "\r\n" + body).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String jsonBody(int targetBytes) {
+        StringBuilder sb = new StringBuilder(targetBytes + 256);
+        sb.append("{\"token\":\"t0k3n\",\"items\":[");
+        for (int i = 0; sb.length() < targetBytes; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(i)
+                    .append(",\"name\":\"item-").append(i)
+                    .append("\",\"description\":\"lorem ipsum dolor sit amet consectetur\",\"field")
+                    .append(i % 500).append("\":\"v").append(i).append("\"}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String formBody(int fields) {
+        StringBuilder sb = new StringBuilder(fields * 16);
+        for (int i = 0; i < fields; i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            sb.append("field").append(i).append("=value").append(i);
+        }
+        return sb.toString();
+    }
+
+    // A mixed rule table of the given size: mostly exact names (field<i>, a few well-known names),
+    // every tenth rule a regex, every seventh scoped to a path, with a mix of codec chains and modes.
+    public static List<ParamMutatorRule> rules(int count) {
+        String[] common = {"id", "q", "token", "name", "session"};
+        List<ParamMutatorRule> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean regex = i % 10 == 9;
+            String pattern;
+            if (regex) {
+                pattern = "^field" + i + "(_[a-z]+)?$";
+            } else if (i < common.length) {
+                pattern = common[i];
+            } else {
+                pattern = "field" + i;
+            }
+            boolean pathScoped = i % 7 == 6;
+            List<CodecOp> decode = i % 3 == 0 ? List.of(CodecOp.URL_DECODE) : List.of();
+            List<CodecOp> encode = i % 3 == 0 ? List.of(CodecOp.URL_ENCODE)
+                    : i % 5 == 0 ? List.of(CodecOp.BASE64_ENCODE) : List.of();
+            boolean random = i % 2 == 0;
+            rules.add(new ParamMutatorRule(
+                    pattern,
+                    regex ? ParamPatternType.REGEX : ParamPatternType.NORMAL,
+                    random ? MutationMode.RANDOM : MutationMode.STRING,
+                    RandomType.ALPHANUM,
+                    i % 4 == 0 ? Position.PREFIX : Position.SUFFIX,
+                    8,
+                    random ? null : "'\"<x>",
+                    decode,
+                    encode,
+                    pathScoped,
+                    pathScoped ? "/account/update" : "",
+                    false));
+        }
+        return rules;
+    }
+}
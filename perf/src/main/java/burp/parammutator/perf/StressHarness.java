@@ -0,0 +1,291 @@
+package burp.parammutator.perf;
+
+import burp.api.montoya.http.handler.HttpRequestToBeSent;
+import burp.parammutator.http.ParamMutatorHttpHandler;
+import burp.parammutator.log.LogLevel;
+import burp.parammutator.log.Logger;
+import burp.parammutator.model.ExtensionConfig;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs the handler from many threads at once (as Scanner/Intruder do) and checks that throughput scales:
+//   java -cp param-mutator-perf.jar burp.parammutator.perf.StressHarness \
+//        [--threads 1,2,4,...,256] [--virtual] [--request SMALL_GET] [--rules 100]
+//        [--duration-ms 2000] [--warmup-ms 3000] [--min-efficiency 0.6] [--jfr]
+// Efficiency of a step is its throughput divided by the single-thread throughput times
+// min(threads, cores). The process exits with status 1 if any step falls below --min-efficiency.
+// --jfr adds the most contended locks per step; recording every lock event slows the run down noticeably.
+public final class StressHarness {
+
+    private static final int[] DEFAULT_THREADS = {1, 2, 4, 8, 16, 32, 64, 128, 256};
+
+    private final ParamMutatorHttpHandler handler;
+    private final HttpRequestToBeSent request;
+    private final boolean virtual;
+    private final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+
+    public StressHarness(ParamMutatorHttpHandler handler, HttpRequestToBeSent request, boolean virtual) {
+        this.handler = handler;
+        this.request = request;
+        this.virtual = virtual;
+        if (mx.isThreadContentionMonitoringSupported()) {
+            mx.setThreadContentionMonitoringEnabled(true);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = DEFAULT_THREADS;
+        boolean virtual = false;
+        Scenarios.Request kind = Scenarios.Request.SMALL_GET;
+        int rules = 100;
+        long durationMs = 2000;
+        long warmupMs = 3000;
+        double minEfficiency = 0.6;
+        boolean jfr = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threadCounts = parseCounts(args[++i]);
+                case "--virtual" -> virtual = true;
+                case "--request" -> kind = Scenarios.Request.valueOf(args[++i]);
+                case "--rules" -> rules = Integer.parseInt(args[++i]);
+                case "--duration-ms" -> durationMs = Long.parseLong(args[++i]);
+                case "--warmup-ms" -> warmupMs = Long.parseLong(args[++i]);
+                case "--min-efficiency" -> minEfficiency = Double.parseDouble(args[++i]);
+                case "--jfr" -> jfr = true;
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        if (virtual && VirtualThreads.FACTORY == null) {
+            System.err.println("--virtual needs a JDK with virtual threads (21+); running on " + Runtime.version());
+            System.exit(2);
+        }
+
+        Stubs.install();
+        Logger.getInstance().setLogLevel(LogLevel.INFO);
+        ParamMutatorHttpHandler handler = new ParamMutatorHttpHandler(
+                new AtomicReference<>(new ExtensionConfig(Scenarios.rules(rules), true)));
+        StressHarness harness = new StressHarness(handler, Stubs.request(Scenarios.request(kind)), virtual);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%s, %d rules, %s threads, %d cores%n", kind, rules, virtual ? "virtual" : "platform", cores);
+        harness.step(Math.min(cores, 4), warmupMs, false);
+
+        System.out.printf("%8s %14s %10s %12s %12s%n", "threads", "req/s", "effic.", "blocked %", "waited %");
+        double base = 0;
+        boolean failed = false;
+        for (int n : threadCounts) {
+            Step s = harness.step(n, durationMs, jfr);
+            if (base == 0) {
+                base = s.throughput / Math.min(n, cores);
+            }
+            double efficiency = s.throughput / (base * Math.min(n, cores));
+            boolean ok = efficiency >= minEfficiency;
+            failed |= !ok;
+            System.out.printf("%8d %14.0f %10.2f %12s %12s%s%n", n, s.throughput, efficiency,
+                    percent(s.blockedMs, s.threadMs), percent(s.waitedMs, s.threadMs), ok ? "" : "   < " + minEfficiency);
+            for (String line : s.contention) {
+                System.out.println("           " + line);
+            }
+        }
+        if (failed) {
+            System.out.println("FAILED: scaling efficiency below " + minEfficiency);
+            System.exit(1);
+        }
+    }
+
+    private static int[] parseCounts(String s) {
+        String[] parts = s.split(",");
+        int[] out = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            out[i] = Integer.parseInt(parts[i].trim());
+        }
+        return out;
+    }
+
+    private static String percent(long part, long total) {
+        // ThreadMXBean does not report virtual threads; -1 marks "not available"
+        return part < 0 || total <= 0 ? "n/a" : String.format("%.1f", 100.0 * part / total);
+    }
+
+    static final class Step {
+        double throughput;
+        long blockedMs;
+        long waitedMs;
+        long threadMs;
+        List<String> contention = List.of();
+    }
+
+    Step step(int threads, long durationMs, boolean profile) throws Exception {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicLong ops = new AtomicLong();
+        AtomicLong blocked = new AtomicLong();
+        AtomicLong waited = new AtomicLong();
+        boolean monitored = !virtual && mx.isThreadContentionMonitoringEnabled();
+        long[] deadline = new long[1];
+
+        Runnable worker = () -> {
+            ready.countDown();
+            try {
+                go.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            ThreadInfo before = monitored ? mx.getThreadInfo(Thread.currentThread().getId()) : null;
+            long n = 0;
+            long end = deadline[0];
+            while (System.nanoTime() < end) {
+                handler.handleHttpRequestToBeSent(request);
+                n++;
+            }
+            ops.addAndGet(n);
+            if (before != null) {
+                ThreadInfo after = mx.getThreadInfo(Thread.currentThread().getId());
+                blocked.addAndGet(after.getBlockedTime() - before.getBlockedTime());
+                waited.addAndGet(after.getWaitedTime() - before.getWaitedTime());
+            }
+        };
+
+        List<Thread> started = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread t = virtual ? VirtualThreads.start(worker) : new Thread(worker, "stress-" + i);
+            if (!virtual) {
+                t.setDaemon(true);
+                t.start();
+            }
+            started.add(t);
+        }
+        ready.await();
+
+        Recording recording = profile ? startRecording() : null;
+        long start = System.nanoTime();
+        deadline[0] = start + durationMs * 1_000_000L;
+        go.countDown();
+        for (Thread t : started) {
+            t.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Step s = new Step();
+        s.throughput = ops.get() * 1e9 / elapsed;
+        s.blockedMs = monitored ? blocked.get() : -1;
+        s.waitedMs = monitored ? waited.get() : -1;
+        s.threadMs = elapsed / 1_000_000L * threads;
+        if (recording != null) {
+            s.contention = summarize(recording, virtual);
+        }
+        return s;
+    }
+
+    // Monitor-enter and park events with no threshold: every contended acquisition of a monitor or
+    // j.u.c lock by a worker thread, with how long it waited, grouped by lock class and acquiring frame.
+    private static Recording startRecording() {
+        Recording r = new Recording();
+        r.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ZERO).withStackTrace();
+        r.enable("jdk.ThreadPark").withThreshold(Duration.ZERO).withStackTrace();
+        r.start();
+        return r;
+    }
+
+    private static List<String> summarize(Recording recording, boolean virtual) throws Exception {
+        recording.stop();
+        Path file = Files.createTempFile("stress-", ".jfr");
+        try {
+            recording.dump(file);
+            Map<String, long[]> byLock = new HashMap<>();
+            for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+                // idle background threads (pool refiller, JFR) park too; only workers count
+                RecordedThread thread = e.getThread();
+                String threadName = thread == null ? null : thread.getJavaName();
+                if (!virtual && (threadName == null || !threadName.startsWith("stress-"))) {
+                    continue;
+                }
+                boolean monitor = e.getEventType().getName().equals("jdk.JavaMonitorEnter");
+                RecordedClass cls = monitor ? e.getClass("monitorClass") : e.getClass("parkedClass");
+                String key = (monitor ? "monitor " : "park ") + (cls == null ? "?" : cls.getName())
+                        + " at " + firstAppFrame(e.getStackTrace());
+                long[] agg = byLock.computeIfAbsent(key, k -> new long[2]);
+                agg[0]++;
+                agg[1] += e.getDuration().toNanos();
+            }
+            List<Map.Entry<String, long[]>> top = new ArrayList<>(byLock.entrySet());
+            top.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < Math.min(5, top.size()); i++) {
+                Map.Entry<String, long[]> e = top.get(i);
+                lines.add(String.format("%-90s %8d x %10.2f ms", e.getKey(), e.getValue()[0], e.getValue()[1] / 1e6));
+            }
+            return lines;
+        } finally {
+            recording.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static String firstAppFrame(RecordedStackTrace stack) {
+        if (stack == null) {
+            return "?";
+        }
+        for (RecordedFrame f : stack.getFrames()) {
+            String type = f.getMethod().getType().getName();
+            if (type.startsWith("burp.parammutator.") && !type.startsWith("burp.parammutator.perf.")) {
+                return type.substring(type.lastIndexOf('.') + 1) + "." + f.getMethod().getName();
+            }
+        }
+        RecordedFrame top = stack.getFrames().isEmpty() ? null : stack.getFrames().get(0);
+        return top == null ? "?" : top.getMethod().getType().getName() + "." + top.getMethod().getName();
+    }
+
+    // Thread.ofVirtual() looked up reflectively so the module still builds for Java 17.
+    private static final class VirtualThreads {
+        static final Object FACTORY;
+        static final Method START;
+
+        static {
+            Object factory = null;
+            Method start = null;
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                factory = builder;
+                start = builderType.getMethod("start", Runnable.class);
+            } catch (ReflectiveOperationException e) {
+                // pre-21 JDK
+            }
+            FACTORY = factory;
+            START = start;
+        }
+
+        static Thread start(Runnable r) {
+            try {
+                return (Thread) START.invoke(FACTORY, r);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
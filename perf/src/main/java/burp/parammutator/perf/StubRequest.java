@@ -0,0 +1,459 @@
+package burp.parammutator.perf;
+
+import burp.api.montoya.core.Annotations;
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.core.Range;
+import burp.api.montoya.core.ToolSource;
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.handler.HttpRequestToBeSent;
+import burp.api.montoya.http.message.HttpHeader;
+import burp.api.montoya.http.message.params.HttpParameter;
+import burp.api.montoya.http.message.params.HttpParameterType;
+import burp.api.montoya.http.message.params.ParsedHttpParameter;
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Immutable raw HTTP/1.x request behind the HttpRequestToBeSent stub.
+// Parameters (query, cookies, urlencoded and JSON bodies) are parsed with their value offsets on every
+// parameters() call, so repeated benchmark invocations pay the parse cost as the handler would;
+// every with* method returns a new request built from the spliced bytes, as Burp does.
+public final class StubRequest {
+
+    private final byte[] raw;
+    private final String text;
+    private final HttpService service;
+    private final boolean inScope;
+    private final ToolSource toolSource;
+    private final Annotations annotations;
+
+    private final String method;
+    private final String target;
+    private final String version;
+    private final int targetStart;
+    private final List<HttpHeader> headers = new ArrayList<>();
+    private final int bodyOffset;
+
+    StubRequest(byte[] raw, HttpService service, boolean inScope, ToolSource toolSource) {
+        this.raw = raw;
+        this.text = new String(raw, StandardCharsets.ISO_8859_1);
+        this.service = service;
+        this.inScope = inScope;
+        this.toolSource = toolSource;
+        this.annotations = new Stubs.Factory().annotations();
+
+        int headerEnd = text.indexOf("\r\n\r\n");
+        this.bodyOffset = headerEnd < 0 ? raw.length : headerEnd + 4;
+        int lineEnd = text.indexOf("\r\n");
+        String requestLine = text.substring(0, lineEnd < 0 ? text.length() : lineEnd);
+        int s1 = requestLine.indexOf(' ');
+        int s2 = requestLine.lastIndexOf(' ');
+        if (s1 < 0 || s2 <= s1) {
+            throw new IllegalArgumentException("Malformed request line: " + requestLine);
+        }
+        this.method = requestLine.substring(0, s1);
+        this.target = requestLine.substring(s1 + 1, s2);
+        this.version = requestLine.substring(s2 + 1);
+        this.targetStart = s1 + 1;
+
+        int pos = lineEnd + 2;
+        int end = headerEnd < 0 ? text.length() : headerEnd;
+        while (lineEnd >= 0 && pos < end) {
+            int next = text.indexOf("\r\n", pos);
+            if (next < 0 || next > end) {
+                next = end;
+            }
+            String line = text.substring(pos, next);
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.add(Stubs.header(line.substring(0, colon).trim(), line.substring(colon + 1).trim()));
+            }
+            pos = next + 2;
+        }
+    }
+
+    // --- HttpRequestToBeSent ---
+
+    public int messageId() { return 0; }
+    public Annotations annotations() { return annotations; }
+    public boolean isInScope() { return inScope; }
+    public HttpService httpService() { return service; }
+    public ToolSource toolSource() { return toolSource; }
+    public String method() { return method; }
+    public String path() { return target; }
+    public String httpVersion() { return version; }
+    public int bodyOffset() { return bodyOffset; }
+    public List<HttpHeader> headers() { return headers; }
+    public ByteArray toByteArray() { return Stubs.bytes(raw); }
+    public ByteArray body() { return Stubs.bytes(Arrays.copyOfRange(raw, bodyOffset, raw.length)); }
+    public String bodyToString() { return text.substring(bodyOffset); }
+    @Override public String toString() { return text; }
+
+    public String pathWithoutQuery() {
+        int q = target.indexOf('?');
+        return q < 0 ? target : target.substring(0, q);
+    }
+
+    public String url() {
+        return (service.secure() ? "https://" : "http://") + service.host() + target;
+    }
+
+    public boolean contains(String s, boolean caseSensitive) {
+        if (caseSensitive) {
+            return text.contains(s);
+        }
+        return text.toLowerCase(Locale.ROOT).contains(s.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean hasHeader(String name) {
+        return header(name) != null;
+    }
+
+    public HttpHeader header(String name) {
+        for (HttpHeader h : headers) {
+            if (h.name().equalsIgnoreCase(name)) {
+                return h;
+            }
+        }
+        return null;
+    }
+
+    public String headerValue(String name) {
+        HttpHeader h = header(name);
+        return h == null ? null : h.value();
+    }
+
+    public boolean hasParameters() {
+        return !parameters().isEmpty();
+    }
+
+    public List<ParsedHttpParameter> parameters() {
+        List<Parsed> parsed = parse();
+        List<ParsedHttpParameter> params = new ArrayList<>(parsed.size());
+        for (Parsed p : parsed) {
+            params.add(Stubs.proxy(ParsedHttpParameter.class, p));
+        }
+        return params;
+    }
+
+    public List<ParsedHttpParameter> parameters(HttpParameterType type) {
+        List<ParsedHttpParameter> out = new ArrayList<>();
+        for (ParsedHttpParameter p : parameters()) {
+            if (p.type() == type) {
+                out.add(p);
+            }
+        }
+        return out;
+    }
+
+    // --- with* (each returns a new request) ---
+
+    public HttpRequest withPath(String path) {
+        return rebuild(path, headers, bodyBytes());
+    }
+
+    public HttpRequest withBody(ByteArray body) {
+        return rebuild(target, withContentLength(headers, body.length()), body.getBytes());
+    }
+
+    public HttpRequest withBody(String body) {
+        return withBody(Stubs.bytes(body.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    public HttpRequest withAddedHeader(HttpHeader header) {
+        List<HttpHeader> hs = new ArrayList<>(headers);
+        hs.add(header);
+        return rebuild(target, hs, bodyBytes());
+    }
+
+    public HttpRequest withAddedHeader(String name, String value) {
+        return withAddedHeader(Stubs.header(name, value));
+    }
+
+    public HttpRequest withUpdatedHeader(HttpHeader header) {
+        return rebuild(target, replaceHeader(headers, header.name(), header), bodyBytes());
+    }
+
+    public HttpRequest withUpdatedHeader(String name, String value) {
+        return withUpdatedHeader(Stubs.header(name, value));
+    }
+
+    public HttpRequest withRemovedHeader(HttpHeader header) {
+        return withRemovedHeader(header.name());
+    }
+
+    public HttpRequest withRemovedHeader(String name) {
+        return rebuild(target, replaceHeader(headers, name, null), bodyBytes());
+    }
+
+    public HttpRequest withRemovedHeaders(List<? extends HttpHeader> removed) {
+        List<HttpHeader> hs = new ArrayList<>(headers);
+        for (HttpHeader r : removed) {
+            hs.removeIf(h -> h.name().equalsIgnoreCase(r.name()));
+        }
+        return rebuild(target, hs, bodyBytes());
+    }
+
+    public HttpRequest withRemovedHeaders(HttpHeader[] removed) {
+        return withRemovedHeaders(Arrays.asList(removed));
+    }
+
+    public HttpRequest withUpdatedParameters(HttpParameter[] updates) {
+        return withUpdatedParameters(Arrays.asList(updates));
+    }
+
+    // Splices each new value over the next not yet updated parameter with the same name and type
+    // (repeated names are updated in order); unknown URL/BODY parameters are appended.
+    public HttpRequest withUpdatedParameters(List<? extends HttpParameter> updates) {
+        List<Parsed> parsed = parse();
+        boolean[] used = new boolean[parsed.size()];
+        List<int[]> spans = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        StringBuilder addQuery = new StringBuilder();
+        StringBuilder addBody = new StringBuilder();
+        for (HttpParameter u : updates) {
+            Parsed hit = null;
+            for (int i = 0; i < parsed.size(); i++) {
+                Parsed p = parsed.get(i);
+                if (!used[i] && p.type == u.type() && p.name.equals(u.name())) {
+                    used[i] = true;
+                    hit = p;
+                    break;
+                }
+            }
+            if (hit != null) {
+                spans.add(new int[]{hit.valueStart, hit.valueEnd, values.size()});
+                values.add(u.value());
+            } else if (u.type() == HttpParameterType.URL) {
+                addQuery.append(addQuery.length() == 0 && target.indexOf('?') < 0 ? '?' : '&')
+                        .append(u.name()).append('=').append(u.value());
+            } else if (u.type() == HttpParameterType.BODY) {
+                addBody.append(addBody.length() == 0 && bodyOffset == raw.length ? "" : "&")
+                        .append(u.name()).append('=').append(u.value());
+            }
+        }
+        spans.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        StringBuilder sb = new StringBuilder(text.length() + 64);
+        int pos = 0;
+        int queryEnd = targetStart + target.length();
+        for (int[] span : spans) {
+            if (addQuery.length() > 0 && pos <= queryEnd && span[0] > queryEnd) {
+                sb.append(text, pos, queryEnd).append(addQuery);
+                pos = queryEnd;
+                addQuery.setLength(0);
+            }
+            sb.append(text, pos, span[0]).append(values.get(span[2]));
+            pos = span[1];
+        }
+        if (addQuery.length() > 0) {
+            sb.append(text, pos, queryEnd).append(addQuery);
+            pos = queryEnd;
+        }
+        sb.append(text, pos, text.length()).append(addBody);
+
+        StubRequest spliced = new StubRequest(sb.toString().getBytes(StandardCharsets.ISO_8859_1), service, inScope,
+                toolSource);
+        int bodyLength = spliced.raw.length - spliced.bodyOffset;
+        if (bodyLength != raw.length - bodyOffset && spliced.hasHeader("Content-Length")) {
+            return spliced.withUpdatedHeader("Content-Length", String.valueOf(bodyLength));
+        }
+        return Stubs.proxy(HttpRequestToBeSent.class, spliced);
+    }
+
+    // --- internals ---
+
+    private byte[] bodyBytes() {
+        return Arrays.copyOfRange(raw, bodyOffset, raw.length);
+    }
+
+    private static List<HttpHeader> replaceHeader(List<HttpHeader> headers, String name, HttpHeader with) {
+        List<HttpHeader> out = new ArrayList<>(headers.size());
+        boolean replaced = false;
+        for (HttpHeader h : headers) {
+            if (h.name().equalsIgnoreCase(name)) {
+                if (with != null && !replaced) {
+                    out.add(with);
+                    replaced = true;
+                }
+            } else {
+                out.add(h);
+            }
+        }
+        if (with != null && !replaced) {
+            out.add(with);
+        }
+        return out;
+    }
+
+    private static List<HttpHeader> withContentLength(List<HttpHeader> headers, int length) {
+        for (HttpHeader h : headers) {
+            if (h.name().equalsIgnoreCase("Content-Length")) {
+                return replaceHeader(headers, "Content-Length", Stubs.header("Content-Length", String.valueOf(length)));
+            }
+        }
+        return headers;
+    }
+
+    private HttpRequest rebuild(String newTarget, List<HttpHeader> newHeaders, byte[] body) {
+        StringBuilder head = new StringBuilder(256);
+        head.append(method).append(' ').append(newTarget).append(' ').append(version).append("\r\n");
+        for (HttpHeader h : newHeaders) {
+            head.append(h.name()).append(": ").append(h.value()).append("\r\n");
+        }
+        head.append("\r\n");
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        byte[] out = Arrays.copyOf(headBytes, headBytes.length + body.length);
+        System.arraycopy(body, 0, out, headBytes.length, body.length);
+        return Stubs.proxy(HttpRequestToBeSent.class,
+                new StubRequest(out, service, inScope, toolSource));
+    }
+
+    private List<Parsed> parse() {
+        List<Parsed> out = new ArrayList<>();
+        int q = target.indexOf('?');
+        if (q >= 0) {
+            parsePairs(out, HttpParameterType.URL, targetStart + q + 1, targetStart + target.length(), '&');
+        }
+        int pos = 0;
+        for (HttpHeader h : headers) {
+            int lineStart = text.indexOf("\r\n" + h.name() + ":", pos);
+            if (lineStart < 0) {
+                continue;
+            }
+            pos = lineStart + 2;
+            if (h.name().equalsIgnoreCase("Cookie")) {
+                int valueStart = text.indexOf(h.value(), pos + h.name().length() + 1);
+                parsePairs(out, HttpParameterType.COOKIE, valueStart, valueStart + h.value().length(), ';');
+            }
+        }
+        String contentType = headerValue("Content-Type");
+        if (contentType != null && bodyOffset < raw.length) {
+            String ct = contentType.toLowerCase(Locale.ROOT);
+            if (ct.contains("application/x-www-form-urlencoded")) {
+                parsePairs(out, HttpParameterType.BODY, bodyOffset, raw.length, '&');
+            } else if (ct.contains("json")) {
+                parseJson(out);
+            }
+        }
+        return out;
+    }
+
+    private void parsePairs(List<Parsed> out, HttpParameterType type, int from, int to, char separator) {
+        int pos = from;
+        while (pos < to) {
+            int end = text.indexOf(separator, pos);
+            if (end < 0 || end > to) {
+                end = to;
+            }
+            int nameStart = pos;
+            while (nameStart < end && text.charAt(nameStart) == ' ') {
+                nameStart++;
+            }
+            int eq = text.indexOf('=', nameStart);
+            if (eq >= 0 && eq < end && eq > nameStart) {
+                out.add(new Parsed(type, text.substring(nameStart, eq), text.substring(eq + 1, end),
+                        nameStart, eq, eq + 1, end));
+            }
+            pos = end + 1;
+        }
+    }
+
+    // Every "name": <string|number|literal> pair at any depth, like Burp's JSON parameter parsing.
+    private void parseJson(List<Parsed> out) {
+        int pos = bodyOffset;
+        int end = raw.length;
+        while (pos < end) {
+            int nameStart = text.indexOf('"', pos);
+            if (nameStart < 0) {
+                return;
+            }
+            int nameEnd = stringEnd(nameStart + 1, end);
+            if (nameEnd < 0) {
+                return;
+            }
+            int p = skipSpaces(nameEnd + 1, end);
+            if (p >= end || text.charAt(p) != ':') {
+                pos = nameEnd + 1;
+                continue;
+            }
+            p = skipSpaces(p + 1, end);
+            if (p >= end) {
+                return;
+            }
+            char c = text.charAt(p);
+            String name = text.substring(nameStart + 1, nameEnd);
+            if (c == '"') {
+                int valueEnd = stringEnd(p + 1, end);
+                if (valueEnd < 0) {
+                    return;
+                }
+                out.add(new Parsed(HttpParameterType.JSON, name, text.substring(p + 1, valueEnd),
+                        nameStart + 1, nameEnd, p + 1, valueEnd));
+                pos = valueEnd + 1;
+            } else if (c == '{' || c == '[') {
+                pos = p + 1;
+            } else {
+                int valueEnd = p;
+                while (valueEnd < end && ",}] \r\n\t".indexOf(text.charAt(valueEnd)) < 0) {
+                    valueEnd++;
+                }
+                out.add(new Parsed(HttpParameterType.JSON, name, text.substring(p, valueEnd),
+                        nameStart + 1, nameEnd, p, valueEnd));
+                pos = valueEnd;
+            }
+        }
+    }
+
+    private int stringEnd(int from, int end) {
+        for (int i = from; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int skipSpaces(int from, int end) {
+        int p = from;
+        while (p < end && Character.isWhitespace(text.charAt(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    public static final class Parsed {
+        private final HttpParameterType type;
+        private final String name;
+        private final String value;
+        private final int nameStart;
+        private final int nameEnd;
+        private final int valueStart;
+        private final int valueEnd;
+
+        Parsed(HttpParameterType type, String name, String value,
+               int nameStart, int nameEnd, int valueStart, int valueEnd) {
+            this.type = type;
+            this.name = name;
+            this.value = value;
+            this.nameStart = nameStart;
+            this.nameEnd = nameEnd;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+        }
+
+        public HttpParameterType type() { return type; }
+        public String name() { return name; }
+        public String value() { return value; }
+        public Range nameOffsets() { return Stubs.proxy(Range.class, new Stubs.Span(nameStart, nameEnd)); }
+        public Range valueOffsets() { return Stubs.proxy(Range.class, new Stubs.Span(valueStart, valueEnd)); }
+        @Override public String toString() { return type + ":" + name + "=" + value; }
+    }
+}
@@ -0,0 +1,326 @@
+package burp.parammutator.perf;
+
+import burp.api.montoya.core.Annotations;
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.core.HighlightColor;
+import burp.api.montoya.core.Range;
+import burp.api.montoya.core.ToolSource;
+import burp.api.montoya.core.ToolType;
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.handler.HttpRequestToBeSent;
+import burp.api.montoya.http.handler.RequestToBeSentAction;
+import burp.api.montoya.http.message.HttpHeader;
+import burp.api.montoya.http.message.params.HttpParameter;
+import burp.api.montoya.http.message.params.HttpParameterType;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.internal.MontoyaObjectFactory;
+import burp.api.montoya.internal.ObjectFactoryLocator;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Minimal stand-ins for the Montoya types the handler touches, so it can run without Burp.
+// Every Montoya interface is backed by a plain class through a dynamic proxy; calls are routed to the
+// implementation method with the same name and parameter types, anything else throws
+// UnsupportedOperationException. The proxy hop costs a few nanoseconds per call, which is included
+// in every number these tools report.
+public final class Stubs {
+
+    private static final ClassValue<ConcurrentHashMap<Method, Method>> DISPATCH = new ClassValue<>() {
+        @Override
+        protected ConcurrentHashMap<Method, Method> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    private static final Method MISSING;
+
+    static {
+        try {
+            MISSING = Stubs.class.getDeclaredMethod("missing");
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static volatile boolean installed;
+
+    private Stubs() { }
+
+    // Points Montoya's static factories (HttpParameter.parameter, ByteArray.byteArray, ...) at the stubs.
+    public static synchronized void install() {
+        if (!installed) {
+            ObjectFactoryLocator.FACTORY = proxy(MontoyaObjectFactory.class, new Factory());
+            installed = true;
+        }
+    }
+
+    public static HttpRequestToBeSent request(byte[] raw) {
+        return request(raw, service("example.com", 443, true), true);
+    }
+
+    // requests come from the Scanner unless a tool is given
+    public static HttpRequestToBeSent request(byte[] raw, HttpService service, boolean inScope) {
+        return request(raw, service, inScope, ToolType.SCANNER);
+    }
+
+    public static HttpRequestToBeSent request(byte[] raw, HttpService service, boolean inScope, ToolType tool) {
+        install();
+        return proxy(HttpRequestToBeSent.class,
+                new StubRequest(raw, service, inScope, proxy(ToolSource.class, new Tool(tool))));
+    }
+
+    public static HttpService service(String host, int port, boolean secure) {
+        return proxy(HttpService.class, new Service(host, port, secure));
+    }
+
+    static ByteArray bytes(byte[] data) {
+        return proxy(ByteArray.class, new Bytes(data));
+    }
+
+    static HttpHeader header(String name, String value) {
+        return proxy(HttpHeader.class, new Header(name, value));
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> iface, Object impl) {
+        return (T) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{iface}, new Dispatcher(impl));
+    }
+
+    static Object unwrap(Object proxy) {
+        if (proxy != null && Proxy.isProxyClass(proxy.getClass())
+                && Proxy.getInvocationHandler(proxy) instanceof Dispatcher d) {
+            return d.impl;
+        }
+        return proxy;
+    }
+
+    @SuppressWarnings("unused")
+    private static void missing() { }
+
+    private static final class Dispatcher implements InvocationHandler {
+        private final Object impl;
+
+        Dispatcher(Object impl) {
+            this.impl = impl;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            // plain get first: computeIfAbsent locks the bin even on a hit, which shows up as contention
+            ConcurrentHashMap<Method, Method> table = DISPATCH.get(impl.getClass());
+            Method target = table.get(method);
+            if (target == null) {
+                target = table.computeIfAbsent(method, this::resolve);
+            }
+            if (target == MISSING) {
+                if (method.isDefault()) {
+                    return InvocationHandler.invokeDefault(proxy, method, args);
+                }
+                throw new UnsupportedOperationException("stub: " + method.getDeclaringClass().getSimpleName()
+                        + "." + method.getName());
+            }
+            try {
+                return target.invoke(impl, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Method resolve(Method m) {
+            try {
+                Method target = impl.getClass().getMethod(m.getName(), m.getParameterTypes());
+                target.setAccessible(true);
+                return target;
+            } catch (NoSuchMethodException e) {
+                return MISSING;
+            }
+        }
+    }
+
+    // --- value types ---
+
+    public static final class Factory {
+        public HttpParameter parameter(String name, String value, HttpParameterType type) {
+            return proxy(HttpParameter.class, new Param(name, value, type));
+        }
+
+        public HttpParameter urlParameter(String name, String value) {
+            return parameter(name, value, HttpParameterType.URL);
+        }
+
+        public HttpParameter bodyParameter(String name, String value) {
+            return parameter(name, value, HttpParameterType.BODY);
+        }
+
+        public HttpParameter cookieParameter(String name, String value) {
+            return parameter(name, value, HttpParameterType.COOKIE);
+        }
+
+        public ByteArray byteArray(byte[] data) {
+            return bytes(data);
+        }
+
+        public ByteArray byteArray(String s) {
+            return bytes(s.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        public HttpHeader httpHeader(String name, String value) {
+            return header(name, value);
+        }
+
+        public HttpHeader httpHeader(String line) {
+            int idx = line.indexOf(':');
+            return idx < 0 ? header(line, "") : header(line.substring(0, idx).trim(), line.substring(idx + 1).trim());
+        }
+
+        public HttpService httpService(String host, int port, boolean secure) {
+            return service(host, port, secure);
+        }
+
+        public Annotations annotations() {
+            return proxy(Annotations.class, new Notes());
+        }
+
+        public Range range(int start, int end) {
+            return proxy(Range.class, new Span(start, end));
+        }
+
+        public RequestToBeSentAction requestResult(HttpRequest request) {
+            return requestResult(request, null);
+        }
+
+        public RequestToBeSentAction requestResult(HttpRequest request, Annotations annotations) {
+            return proxy(RequestToBeSentAction.class, new Action(request, annotations));
+        }
+    }
+
+    public static final class Action {
+        private final HttpRequest request;
+        private final Annotations annotations;
+
+        Action(HttpRequest request, Annotations annotations) {
+            this.request = request;
+            this.annotations = annotations;
+        }
+
+        public HttpRequest request() { return request; }
+        public Annotations annotations() { return annotations; }
+    }
+
+    public static final class Param {
+        private final String name;
+        private final String value;
+        private final HttpParameterType type;
+
+        Param(String name, String value, HttpParameterType type) {
+            this.name = name;
+            this.value = value;
+            this.type = type;
+        }
+
+        public String name() { return name; }
+        public String value() { return value; }
+        public HttpParameterType type() { return type; }
+        @Override public String toString() { return type + ":" + name + "=" + value; }
+    }
+
+    public static final class Header {
+        private final String name;
+        private final String value;
+
+        Header(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String name() { return name; }
+        public String value() { return value; }
+        @Override public String toString() { return name + ": " + value; }
+    }
+
+    public static final class Bytes {
+        private final byte[] data;
+
+        Bytes(byte[] data) {
+            this.data = data;
+        }
+
+        // like Burp, hands out a copy
+        public byte[] getBytes() { return data.clone(); }
+        public int length() { return data.length; }
+        public byte getByte(int i) { return data[i]; }
+        public ByteArray copy() { return bytes(data.clone()); }
+        public ByteArray subArray(int start, int end) { return bytes(Arrays.copyOfRange(data, start, end)); }
+        @Override public String toString() { return new String(data, StandardCharsets.ISO_8859_1); }
+
+        byte[] raw() { return data; }
+    }
+
+    public static final class Service {
+        private final String host;
+        private final int port;
+        private final boolean secure;
+
+        Service(String host, int port, boolean secure) {
+            this.host = host;
+            this.port = port;
+            this.secure = secure;
+        }
+
+        public String host() { return host; }
+        public int port() { return port; }
+        public boolean secure() { return secure; }
+        public String ipAddress() { return "127.0.0.1"; }
+        @Override public String toString() { return (secure ? "https://" : "http://") + host + ":" + port; }
+    }
+
+    public static final class Tool {
+        private final ToolType type;
+
+        Tool(ToolType type) {
+            this.type = type;
+        }
+
+        public ToolType toolType() { return type; }
+
+        public boolean isFromTool(ToolType... types) {
+            for (ToolType t : types) {
+                if (t == type) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static final class Notes {
+        private String notes;
+        private HighlightColor color;
+
+        public String notes() { return notes; }
+        public boolean hasNotes() { return notes != null && !notes.isEmpty(); }
+        public boolean hasHighlightColor() { return color != null; }
+        public void setNotes(String notes) { this.notes = notes; }
+        public HighlightColor highlightColor() { return color; }
+        public void setHighlightColor(HighlightColor color) { this.color = color; }
+    }
+
+    public static final class Span {
+        private final int start;
+        private final int end;
+
+        Span(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public int startIndexInclusive() { return start; }
+        public int endIndexExclusive() { return end; }
+        public boolean contains(int i) { return i >= start && i < end; }
+    }
+}
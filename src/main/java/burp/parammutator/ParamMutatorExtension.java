@@ -3,10 +3,13 @@ package burp.parammutator;
 import burp.api.montoya.BurpExtension;
 import burp.api.montoya.MontoyaApi;
 import burp.api.montoya.core.Registration;
+import burp.parammutator.log.Logger;
 import burp.parammutator.model.ExtensionConfig;
 import burp.parammutator.http.ParamMutatorHttpHandler;
 import burp.parammutator.ui.LogPanel;
+import burp.parammutator.ui.MetricsPanel;
 import burp.parammutator.ui.ParamMutatorConfigPanel;
+import burp.parammutator.util.RandomPools;
 
 import javax.swing.*;
 import java.awt.*;
@@ -16,7 +19,10 @@ public class ParamMutatorExtension implements BurpExtension {
     private final AtomicReference<ExtensionConfig> configRef =
             new AtomicReference<>(ExtensionConfig.empty());
     private Registration httpRegistration = null;
+    private ParamMutatorHttpHandler httpHandler;
     private MontoyaApi api;
+    private LogPanel logPanel;
+    private ParamMutatorConfigPanel configPanel;
 
     @Override
     public void initialize(MontoyaApi api) {
@@ -29,39 +35,41 @@ public class ParamMutatorExtension implements BurpExtension {
         JPanel mainPanel = new JPanel(new BorderLayout());
         JTabbedPane mainTabs = new JTabbedPane();
 
-        ParamMutatorConfigPanel configPanel = new ParamMutatorConfigPanel(this::onConfigChanged);
-        LogPanel logPanel = new LogPanel(api);
+        configPanel = new ParamMutatorConfigPanel(this::onConfigChanged);
+        logPanel = new LogPanel(api);
 
         mainTabs.addTab("Configuration", configPanel);
         mainTabs.addTab("Log", logPanel);
+        mainTabs.addTab("Metrics", new MetricsPanel(configRef::get));
 
         mainPanel.add(mainTabs, BorderLayout.CENTER);
 
         api.userInterface().registerSuiteTab("Param Mutator", mainPanel);
 
+        // one handler for the extension's lifetime; Apply only swaps the config snapshot it reads
+        httpHandler = new ParamMutatorHttpHandler(configRef);
+        httpRegistration = api.http().registerHttpHandler(httpHandler);
+
         onConfigChanged(configRef.get());
     }
 
     private void onConfigChanged(ExtensionConfig newConfig) {
-        configRef.set(newConfig);
-
-        try {
-            if (httpRegistration != null) {
-                httpRegistration.deregister();
-                httpRegistration = null;
-            }
-        } catch (Exception ignored) {
-        }
-
-        if (newConfig.isHttpEnabled()) {
-            httpRegistration = api.http().registerHttpHandler(
-                new ParamMutatorHttpHandler(configRef)
-            );
+        // publish the snapshot before enabling, and disable before publishing,
+        // so an enabled handler never runs on a config that was applied as disabled
+        if (!newConfig.isHttpEnabled()) {
+            httpHandler.setEnabled(false);
         }
+        configRef.set(newConfig);
+        httpHandler.setEnabled(newConfig.isHttpEnabled());
+        RandomPools.retain(newConfig.getRules());
+        configPanel.showActiveConfig(newConfig);
     }
 
     private void onUnload() {
         // Clean up HTTP handler registration
+        if (httpHandler != null) {
+            httpHandler.setEnabled(false);
+        }
         try {
             if (httpRegistration != null) {
                 httpRegistration.deregister();
@@ -70,5 +78,12 @@ public class ParamMutatorExtension implements BurpExtension {
         } catch (Exception e) {
             api.logging().logToError("Error during unload: " + e.getMessage());
         }
+        // stop the random pool refill thread and the Log tab refresh timer
+        RandomPools.shutdown();
+        if (logPanel != null) {
+            logPanel.stopLiveUpdates();
+        }
+        // delete the disk log segments, if any
+        Logger.getInstance().disableDiskStore();
     }
 }
@@ -0,0 +1,12 @@
+package burp.parammutator.http;
+
+import burp.parammutator.model.ParamMutatorRule;
+
+import java.util.List;
+
+// Callback of the structured body rewriters for each value a selector hit.
+interface BodyValueMutator {
+    // Returns the new value, or null to keep the original bytes. 'location' is the concrete path
+    // of the value (e.g. /items/0/email), used for logging.
+    String mutate(String location, String value, List<ParamMutatorRule> rules);
+}
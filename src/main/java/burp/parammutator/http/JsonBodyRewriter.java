@@ -0,0 +1,164 @@
+package burp.parammutator.http;
+
+import burp.parammutator.model.BodyRules;
+import burp.parammutator.model.ParamMutatorRule;
+import burp.parammutator.util.JsonPointers;
+import burp.parammutator.util.SelectorTrie;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Single streaming pass over a JSON body with Jackson's JsonParser; no tree is built.
+// The selector trie is stepped with every member name and array index entered, subtrees no selector
+// can reach are skipped, and only the selected scalars are re-encoded and spliced into the original
+// bytes, so formatting, number text and escapes elsewhere in the body are kept as they were.
+final class JsonBodyRewriter {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final Pattern JSON_NUMBER = Pattern.compile("-?(?:0|[1-9][0-9]*)(?:\\.[0-9]+)?(?:[eE][+-]?[0-9]+)?");
+
+    private JsonBodyRewriter() { }
+
+    // true if the body starts (after whitespace) like a JSON object or array
+    static boolean looksLikeJson(byte[] body) {
+        for (byte b : body) {
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                continue;
+            }
+            return b == '{' || b == '[';
+        }
+        return false;
+    }
+
+    // Returns the rewritten body, or null if no value changed. Malformed JSON throws.
+    static byte[] rewrite(byte[] body, BodyRules.Scope scope, BodyValueMutator mutator) throws IOException {
+        // per open container: trie state, current member name (objects) or element index (arrays)
+        SelectorTrie.State[] states = new SelectorTrie.State[16];
+        String[] names = new String[16];
+        int[] indices = new int[16];
+        int depth = 0;
+        SelectorTrie.State member = null;
+
+        List<int[]> spans = null;
+        List<byte[]> values = null;
+        int delta = 0;
+
+        try (JsonParser p = FACTORY.createParser(body)) {
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                if (t == JsonToken.FIELD_NAME) {
+                    names[depth - 1] = p.currentName();
+                    member = scope.step(states[depth - 1], names[depth - 1]);
+                    continue;
+                }
+                if (t == JsonToken.END_OBJECT || t == JsonToken.END_ARRAY) {
+                    depth--;
+                    continue;
+                }
+
+                SelectorTrie.State state;
+                if (depth == 0) {
+                    state = scope.start();
+                } else if (names[depth - 1] == null) {
+                    state = scope.stepIndex(states[depth - 1], ++indices[depth - 1]);
+                } else {
+                    state = member;
+                }
+
+                if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+                    if (state.isDead()) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    if (depth == states.length) {
+                        states = Arrays.copyOf(states, depth * 2);
+                        names = Arrays.copyOf(names, depth * 2);
+                        indices = Arrays.copyOf(indices, depth * 2);
+                    }
+                    states[depth] = state;
+                    // arrays are told apart by a null member name
+                    names[depth] = t == JsonToken.START_OBJECT ? "" : null;
+                    indices[depth] = -1;
+                    depth++;
+                    continue;
+                }
+
+                if (state.isDead()) {
+                    continue;
+                }
+                List<ParamMutatorRule> rules = scope.rulesAt(state);
+                if (rules.isEmpty()) {
+                    continue;
+                }
+                int start = (int) p.currentTokenLocation().getByteOffset();
+                String value = p.getText();
+                int end = (int) p.currentLocation().getByteOffset();
+
+                String replacement = mutator.mutate(location(names, indices, depth), value, rules);
+                if (replacement == null || replacement.equals(value)) {
+                    continue;
+                }
+                byte[] encoded = encode(t, replacement);
+                if (spans == null) {
+                    spans = new ArrayList<>();
+                    values = new ArrayList<>();
+                }
+                spans.add(new int[]{start, end});
+                values.add(encoded);
+                delta += encoded.length - (end - start);
+            }
+        }
+
+        if (spans == null) {
+            return null;
+        }
+        byte[] out = new byte[body.length + delta];
+        int copied = 0;
+        int len = 0;
+        for (int i = 0; i < spans.size(); i++) {
+            int[] span = spans.get(i);
+            byte[] v = values.get(i);
+            System.arraycopy(body, copied, out, len, span[0] - copied);
+            len += span[0] - copied;
+            System.arraycopy(v, 0, out, len, v.length);
+            len += v.length;
+            copied = span[1];
+        }
+        System.arraycopy(body, copied, out, len, body.length - copied);
+        return out;
+    }
+
+    // strings stay strings; numbers and literals keep their type while the result is still valid
+    private static byte[] encode(JsonToken original, String value) {
+        boolean raw = switch (original) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> JSON_NUMBER.matcher(value).matches();
+            case VALUE_TRUE, VALUE_FALSE, VALUE_NULL -> value.equals("true") || value.equals("false") || value.equals("null");
+            default -> false;
+        };
+        if (raw) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] quoted = JsonStringEncoder.getInstance().quoteAsUTF8(value);
+        byte[] out = new byte[quoted.length + 2];
+        out[0] = '"';
+        System.arraycopy(quoted, 0, out, 1, quoted.length);
+        out[out.length - 1] = '"';
+        return out;
+    }
+
+    private static String location(String[] names, int[] indices, int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int d = 0; d < depth; d++) {
+            JsonPointers.appendSegment(sb, names[d] == null ? Integer.toString(indices[d]) : names[d]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package burp.parammutator.http;
+
+import burp.api.montoya.http.HttpService;
+import burp.parammutator.model.Origin;
+
+import java.util.Objects;
+
+// Small direct-mapped cache from (secure, host, port) to its Origin, so requests to the same target skip
+// lower-casing the host and building the origin string. Keyed by value rather than by HttpService
+// instance: Intruder and Scanner build a fresh service object per request. Slots are overwritten on
+// collision. Entries are immutable, so a racy read sees either a complete entry or a stale one whose
+// key check fails.
+final class OriginCache {
+
+    private static final int SIZE = 256;
+
+    private static final class Entry {
+        final boolean secure;
+        final String host;
+        final int port;
+        final Origin origin;
+
+        Entry(boolean secure, String host, int port, Origin origin) {
+            this.secure = secure;
+            this.host = host;
+            this.port = port;
+            this.origin = origin;
+        }
+    }
+
+    private final Entry[] entries = new Entry[SIZE];
+
+    Origin resolve(HttpService service) {
+        boolean secure = service.secure();
+        String host = service.host();
+        int port = service.port();
+        int h = (host == null ? 0 : host.hashCode()) * 31 + port;
+        int slot = (h ^ (h >>> 16) ^ (secure ? 1 : 0)) & (SIZE - 1);
+        Entry e = entries[slot];
+        if (e != null && e.port == port && e.secure == secure && Objects.equals(e.host, host)) {
+            return e.origin;
+        }
+        Origin origin = new Origin(secure, host, port);
+        entries[slot] = new Entry(secure, host, port, origin);
+        return origin;
+    }
+}
@@ -9,409 +9,448 @@ import burp.api.montoya.http.message.requests.HttpRequest;
 import burp.api.montoya.http.message.params.HttpParameter;
 import burp.api.montoya.http.message.params.ParsedHttpParameter;
 import burp.api.montoya.core.Annotations;
-import burp.api.montoya.http.HttpService;
+import burp.api.montoya.core.ToolType;
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.message.HttpHeader;
 import burp.parammutator.log.LogLevel;
 import burp.parammutator.log.Logger;
+import burp.parammutator.log.ParamLog;
+import burp.parammutator.metrics.HandlerMetrics;
+import burp.parammutator.metrics.HandlerMetrics.Stage;
+import burp.parammutator.metrics.HandlerMetrics.ToolOutcome;
+import burp.parammutator.model.BodyRules;
 import burp.parammutator.model.ExtensionConfig;
+import burp.parammutator.model.MatchPlan;
 import burp.parammutator.model.MutationMode;
+import burp.parammutator.model.Origin;
 import burp.parammutator.model.ParamMutatorRule;
 import burp.parammutator.model.Position;
-import burp.parammutator.util.CodecUtil;
-import burp.parammutator.util.RandomUtil;
+import burp.parammutator.model.RuleIndex;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.nio.charset.StandardCharsets;
 
 public class ParamMutatorHttpHandler implements HttpHandler {
     private final AtomicReference<ExtensionConfig> configRef;
     private final Logger logger = Logger.getInstance();
+    private final HandlerMetrics metrics = HandlerMetrics.getInstance();
+    private final OriginCache origins = new OriginCache();
+    private final RequestTemplates templates = new RequestTemplates();
 
-    // user-def placeholder pattern: {$name$}
-    // Tighter pattern to avoid accidental cross-boundary matches
-    private static final Pattern USER_DEF_PLACEHOLDER = Pattern.compile("\\{\\$([^\\}]+)\\$\\}");
+    // registered once for the extension's lifetime; toggling only flips this flag
+    private volatile boolean enabled;
 
     public ParamMutatorHttpHandler(AtomicReference<ExtensionConfig> configRef) {
         this.configRef = configRef;
+        ExtensionConfig initial = configRef.get();
+        this.enabled = initial != null && initial.isHttpEnabled();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
     }
 
     @Override
     public RequestToBeSentAction handleHttpRequestToBeSent(HttpRequestToBeSent requestToBeSent) {
+        if (!enabled) {
+            return RequestToBeSentAction.continueWith(requestToBeSent);
+        }
         long tStart = System.nanoTime();
+        // TOTAL covers every exit, including the early pass-through returns in mutate()
+        try {
+            return mutate(requestToBeSent, tStart);
+        } finally {
+            metrics.record(Stage.TOTAL, System.nanoTime() - tStart);
+        }
+    }
+
+    private RequestToBeSentAction mutate(HttpRequestToBeSent requestToBeSent, long tStart) {
+        // one snapshot per request: a config swapped in meanwhile applies from the next request on
         ExtensionConfig cfg = configRef.get();
-        Annotations annotations = requestToBeSent.annotations();
 
         if (cfg == null) {
-            return RequestToBeSentAction.continueWith(requestToBeSent, annotations);
+            metrics.countRequest(true);
+            return RequestToBeSentAction.continueWith(requestToBeSent);
+        }
+
+        // tools that are not selected (e.g. Proxy browsing) never reach parsing or matching
+        ToolType tool = requestToBeSent.toolSource().toolType();
+        if (!cfg.isToolAllowed(tool)) {
+            metrics.countRequest(true);
+            metrics.countTool(tool, ToolOutcome.SKIPPED);
+            return RequestToBeSentAction.continueWith(requestToBeSent);
         }
 
-        String origin = buildOrigin(requestToBeSent.httpService());
+        // fast path: decide from the precomputed index whether any rule can apply, before parsing anything
+        RuleIndex index = cfg.getIndex();
+        if (cfg.isInScopeOnly() && !requestToBeSent.isInScope()) {
+            metrics.countRequest(true);
+            metrics.countTool(tool, ToolOutcome.PASSED);
+            return RequestToBeSentAction.continueWith(requestToBeSent);
+        }
+        Origin target = origins.resolve(requestToBeSent.httpService());
         String reqPath = requestToBeSent.path();
- 
-        List<ParsedHttpParameter> originalParams = requestToBeSent.parameters();
-        List<HttpParameter> newParams = new ArrayList<>();
+        RuleIndex.PathScope scope = index.forRequest(target, reqPath);
+        boolean substitutePossible = index.hasSubstituteRulesFor(target, reqPath);
+        BodyRules.Scope jsonScope = index.getJsonRules().forRequest(target, reqPath);
+        BodyRules.Scope xmlScope = index.getXmlRules().forRequest(target, reqPath);
+        if ((jsonScope != null || xmlScope != null) && requestToBeSent.body().length() == 0) {
+            jsonScope = null;
+            xmlScope = null;
+        }
+        if (scope.isEmpty() && jsonScope == null && xmlScope == null
+                && !(substitutePossible && requestToBeSent.contains(PlaceholderSubstitutor.MARKER, true))) {
+            metrics.countRequest(true);
+            metrics.countTool(tool, ToolOutcome.PASSED);
+            metrics.record(Stage.MATCH, System.nanoTime() - tStart);
+            return RequestToBeSentAction.continueWith(requestToBeSent);
+        }
+        metrics.countRequest(false);
 
-        Map<String, String> allParamValues = new HashMap<>();
-        Map<String, String> changedParamValues = new HashMap<>();
-        Map<String, String> substitutedParams = new HashMap<>();
+        Annotations annotations = requestToBeSent.annotations();
+        String origin = target.getKey();
+
+        long tParse = System.nanoTime();
+        List<ParsedHttpParameter> originalParams = scope.isEmpty() ? List.of() : requestToBeSent.parameters();
+        long tMatch = System.nanoTime();
+        metrics.record(Stage.PARSE, tMatch - tParse);
+        // matching and codec work interleave per parameter; their time is summed and recorded once
+        long matchNanos = tParse - tStart;
+        long codecNanos = 0;
+        List<HttpParameter> newParams = new ArrayList<>();
 
-        boolean hasSubstituteRules = false;
-        for (ParamMutatorRule rule : cfg.getRules()) {
-            if (rule.getParamType() == ParamMutatorRule.ParamPatternType.SUBSTITUTE) {
-                hasSubstituteRules = true;
-                break;
-            }
+        // Logging based on mode and log level: only collect what the row will actually show.
+        // Substitute mode: DEBUG logs all parameters + substituted ones, INFO only substituted ones.
+        // Normal/Regex mode: DEBUG logs all parameters, INFO only mutated ones.
+        LogLevel logLevel = logger.getLogLevel();
+        boolean hasSubstituteRules = index.hasSubstituteRules();
+        boolean logAllParams = logLevel == LogLevel.DEBUG;
+        boolean logChangedParams = logLevel == LogLevel.INFO && !hasSubstituteRules;
+        ParamLog paramLog = new ParamLog(logAllParams ? originalParams.size() : 4);
+
+        // host/path filters and name matching are resolved once per request shape by the index;
+        // SUBSTITUTE rules are never part of a plan
+        int paramCount = originalParams.size();
+        String[] names = new String[paramCount];
+        byte[] types = new byte[paramCount];
+        for (int i = 0; i < paramCount; i++) {
+            ParsedHttpParameter param = originalParams.get(i);
+            names[i] = param.name();
+            types[i] = (byte) param.type().ordinal();
         }
+        MatchPlan plan = paramCount == 0 ? null : scope.planFor(names, types);
+        matchNanos += System.nanoTime() - tMatch;
 
-                for (ParsedHttpParameter param : originalParams) {
-            String name = param.name();
+        for (int i = 0; i < paramCount && (logAllParams || !plan.isEmpty()); i++) {
+            ParsedHttpParameter param = originalParams.get(i);
+            String name = names[i];
             String value = param.value();
             var type = param.type();
             String transformed = value;
-            boolean mutated = false;
-
-            for (ParamMutatorRule rule : cfg.getRules()) {
-                // path filter
-                if (!rule.matchesPath(reqPath)) {
-                    continue;
-                }
-                // skip user_def rules here – they are handled on full request
-                if (rule.getParamType() == ParamMutatorRule.ParamPatternType.SUBSTITUTE) {
-                    continue;
-                }
-                if (!rule.matches(name)) {
-                    continue;
-                }
-
-                try {
-                    String decoded = CodecUtil.applyDecodeChain(transformed, rule.getDecodeChain());
-
-                    String insert;
-                    if (rule.getMutationMode() == MutationMode.STRING) {
-                        insert = rule.getText() == null ? "" : rule.getText();
-                    } else {
-                        insert = RandomUtil.randomString(rule.getType(), rule.getLength());
-                    }
-
-                    String mutatedValue;
-                    if (rule.getPosition() == Position.PREFIX) {
-                        mutatedValue = insert + decoded;
-                    } else {
-                        mutatedValue = decoded + insert;
-                    }
 
-                    transformed = CodecUtil.applyEncodeChain(mutatedValue, rule.getEncodeChain());
-                    mutated = true;
-                } catch (Exception ex) {
-                    logger.log(LogLevel.DEBUG, origin, reqPath,
-                            "Exception mutating param " + name + ": " + ex);
-                }
+            List<ParamMutatorRule> rules = plan.rulesAt(i);
+            if (!rules.isEmpty()) {
+                long t1 = System.nanoTime();
+                transformed = applyRules(rules, name, value, origin, reqPath);
+                codecNanos += System.nanoTime() - t1;
             }
 
-            allParamValues.put(name, mutated ? transformed : value);
+            boolean changed = !transformed.equals(value);
+            if (logAllParams) {
+                paramLog.add(name, transformed,
+                        changed ? ParamLog.Kind.MUTATED : ParamLog.Kind.ORIGINAL);
+            }
 
-            if (mutated && !transformed.equals(value)) {
+            if (changed) {
                 newParams.add(HttpParameter.parameter(name, transformed, type));
-                changedParamValues.put(name, transformed);
-            } else {
-                newParams.add(param);
-            }
-        }
- 
-        HttpRequest mutatedRequest = requestToBeSent.withUpdatedParameters(newParams);
- 
-        // 2) user_def placeholder replacement on the full message
-        Map<String, String> userDefReplacements = new HashMap<>();
-
-        String fullMessage = mutatedRequest.toString();
-
-        StringBuilder sb = new StringBuilder();
-        int lastEnd = 0;
-
-        Matcher m = USER_DEF_PLACEHOLDER.matcher(fullMessage);
-        while (m.find()) {
-            String placeholderFull = m.group(0);
-            String placeholderName = m.group(1); // content inside {$ $}
-
-            // find matching user_def rule with matching path (matchesPath already enforces path filter)
-            ParamMutatorRule matchingRule = null;
-            for (ParamMutatorRule rule : cfg.getRules()) {
-                if (rule.getParamType() != ParamMutatorRule.ParamPatternType.SUBSTITUTE) {
-                    continue;
-                }
-                if (!rule.matchesPath(reqPath)) {
-                    continue;
-                }
-                // be permissive: allow rule.pattern to be stored as raw name, wrapped "{$name$}", or full placeholder
-                String rulePattern = rule.getPattern() == null ? "" : rule.getPattern();
-                if (placeholderName.equals(rulePattern)
-                        || placeholderFull.equals(rulePattern)
-                        || ("{$" + placeholderName + "$}").equals(rulePattern)) {
-                    matchingRule = rule;
-                    break;
+                if (logChangedParams) {
+                    paramLog.add(name, transformed, ParamLog.Kind.MUTATED);
                 }
             }
+        }
 
-            if (matchingRule == null) {
-                if (logger.getLogLevel() == LogLevel.DEBUG) {
-                    // collect available user-def patterns for debugging
-                    StringBuilder available = new StringBuilder();
-                    for (ParamMutatorRule r : cfg.getRules()) {
-                        if (r.getParamType() == ParamMutatorRule.ParamPatternType.SUBSTITUTE && r.matchesPath(reqPath)) {
-                            if (available.length() > 0) available.append(", ");
-                            available.append("'").append(r.getPattern()).append("'");
-                        }
-                    }
+        metrics.record(Stage.MATCH, matchNanos);
+        if (!originalParams.isEmpty()) {
+            metrics.record(Stage.CODEC, codecNanos);
+        }
+
+        // only changed parameters are passed on; untouched ones keep their original bytes
+        long tRebuild = System.nanoTime();
+        HttpRequest mutatedRequest = newParams.isEmpty()
+                ? requestToBeSent
+                : requestToBeSent.withUpdatedParameters(newParams);
+        long rebuildNanos = System.nanoTime() - tRebuild;
+        int substituted = 0;
+
+        // 1b) JSON / XML rules: selected values rewritten in one streaming pass over the body
+        int bodyFields = 0;
+        if (jsonScope != null || xmlScope != null) {
+            long tBody = System.nanoTime();
+            byte[] body = mutatedRequest.body().getBytes();
+            BodyFieldMutator fields = new BodyFieldMutator(paramLog, logAllParams, logChangedParams, origin, reqPath);
+            try {
+                byte[] rewritten = null;
+                if (jsonScope != null && JsonBodyRewriter.looksLikeJson(body)) {
+                    rewritten = JsonBodyRewriter.rewrite(body, jsonScope, fields);
+                } else if (xmlScope != null && XmlBodyRewriter.looksLikeXml(body)) {
+                    rewritten = XmlBodyRewriter.rewrite(body, xmlScope, fields);
                 }
-                continue;
+                if (rewritten != null) {
+                    mutatedRequest = mutatedRequest.withBody(ByteArray.byteArray(rewritten));
+                    bodyFields = fields.changed;
+                }
+            } catch (Exception ex) {
+                logger.log(LogLevel.DEBUG, origin, reqPath, "Body not rewritten: " + ex);
             }
+            metrics.record(Stage.BODY, System.nanoTime() - tBody);
+        }
 
-            // generate / reuse replacement for this user_def name
-            String replacement = userDefReplacements.get(placeholderName);
-            if (replacement == null) {
-                if (matchingRule.getMutationMode() == MutationMode.STRING) {
-                    replacement = matchingRule.getText() == null ? "" : matchingRule.getText();
-                } else {
-                    replacement = RandomUtil.randomString(matchingRule.getType(), matchingRule.getLength());
-                }
-                // apply encode chain (decode is meaningless for user_def)
-                replacement = CodecUtil.applyEncodeChain(replacement, matchingRule.getEncodeChain());
-                userDefReplacements.put(placeholderName, replacement);
+        // 2) user_def placeholder replacement on the raw request bytes; a message seen before is
+        //    substituted from its cached template instead of being scanned again
+        if (substitutePossible && mutatedRequest.contains(PlaceholderSubstitutor.MARKER, true)) {
+            long tSubst = System.nanoTime();
+            Map<String, String> userDefReplacements = new HashMap<>();
+            final HttpRequest base = mutatedRequest;
+            byte[] raw = base.toByteArray().getBytes();
+            RequestTemplates.Entry template = templates.lookup(raw);
+            PlaceholderSubstitutor.Result result;
+            if (template != null) {
+                ParamMutatorRule[] slotRules = template.rules(cfg, target,
+                        name -> cfg.getIndex().findSubstituteRule(name, target, reqPath));
+                PlaceholderSubstitutor.Template t = template.template();
+                result = PlaceholderSubstitutor.substitute(t, i ->
+                        generateReplacement(slotRules[i], t.getName(i), origin, reqPath, userDefReplacements));
+            } else {
+                result = PlaceholderSubstitutor.substitute(raw,
+                        placeholderName -> resolvePlaceholder(cfg, target, reqPath, placeholderName, userDefReplacements));
             }
 
-            // Track substituted parameters
-            substitutedParams.put(placeholderName, replacement);
+            long tApply = System.nanoTime();
+            metrics.record(Stage.SUBSTITUTE, tApply - tSubst);
 
-            // WARN if replacement contains CR/LF which can break request framing
-            if (replacement.indexOf('\r') != -1 || replacement.indexOf('\n') != -1) {
-                if (logger.getLogLevel() == LogLevel.DEBUG) {
-                    String sanitized = replacement.replace("\r", "\\r").replace("\n", "\\n");
+            if (result != null) {
+                substituted = userDefReplacements.size();
+                for (Map.Entry<String, String> rep : userDefReplacements.entrySet()) {
+                    paramLog.add(rep.getKey(), rep.getValue(), ParamLog.Kind.SUBSTITUTED);
+                }
+                try {
+                    mutatedRequest = applySubstitution(base, result, origin, reqPath);
+                    rebuildNanos += System.nanoTime() - tApply;
+                } catch (Exception ex) {
                     logger.log(LogLevel.DEBUG, origin, reqPath,
-                            "Replacement for user-def '" + placeholderName + "' contains CR/LF, this may break request framing: " + sanitized);
+                            "Failed to apply in-place updates from substituted message, falling back to parameter-mutated request: " + ex);
+                    // keep mutatedRequest as the one built from parameters to avoid blocking/silently failing
                 }
             }
+        }
 
-            sb.append(fullMessage, lastEnd, m.start());
-            sb.append(replacement);
-            lastEnd = m.end();
+        if (mutatedRequest != requestToBeSent) {
+            metrics.record(Stage.REBUILD, rebuildNanos);
         }
+        metrics.countMutation(newParams.size() + bodyFields, substituted);
+        metrics.countTool(tool, mutatedRequest != requestToBeSent ? ToolOutcome.MUTATED : ToolOutcome.PASSED);
 
-        if (lastEnd == 0 && userDefReplacements.isEmpty()) {
-            // no user_def replacements
-        } else {
-            sb.append(fullMessage.substring(lastEnd));
-            fullMessage = sb.toString();
-
-            // --- CHANGED: adjust Content-Length when body size changed (unless chunked) ---
-            int headerBodySepIndex = fullMessage.indexOf("\r\n\r\n");
-            if (headerBodySepIndex != -1) {
-                String headersPart = fullMessage.substring(0, headerBodySepIndex);
-                String bodyPart = fullMessage.substring(headerBodySepIndex + 4);
-
-                // don't modify if Transfer-Encoding: chunked is present
-                Pattern transferChunked = Pattern.compile("(?mi)^Transfer-Encoding:\s*chunked\s*$", Pattern.MULTILINE);
-                if (!transferChunked.matcher(headersPart).find()) {
-                    byte[] bodyBytes = bodyPart.getBytes(StandardCharsets.ISO_8859_1);
-
-                    // replace existing Content-Length header if present
-                    Pattern clPattern = Pattern.compile("(?mi)^(Content-Length:\s*)(\\d+)\s*$", Pattern.MULTILINE);
-                    Matcher clMatcher = clPattern.matcher(headersPart);
-                    if (clMatcher.find()) {
-                        String prefix = clMatcher.group(1);
-                        headersPart = clMatcher.replaceFirst(prefix + bodyBytes.length);
-                        fullMessage = headersPart + "\r\n\r\n" + bodyPart;
-                    }
-                    // if Content-Length not present, do not add it automatically to avoid changing semantics
-                }
-            }
-            // --- END CHANGED ---
+        // structured row; rendered to JSON only when the Log tab shows or exports it
+        long tLog = System.nanoTime();
+        logger.log(logLevel, origin, reqPath, paramLog);
+        metrics.record(Stage.LOG, System.nanoTime() - tLog);
 
-            // Try to construct request from mutated raw message; if it fails, fall back to previous request
+        // Return mutated request
+        return RequestToBeSentAction.continueWith(mutatedRequest, annotations);
+    }
+
+    // Applies the rules to a value in config order (decode, insert, encode); a rule that fails is skipped.
+    private String applyRules(List<ParamMutatorRule> rules, String name, String value, String origin, String reqPath) {
+        String transformed = value;
+        for (ParamMutatorRule rule : rules) {
             try {
-                // parse request line / headers / body from fullMessage
-                int headerBodySep = fullMessage.indexOf("\r\n\r\n");
-                String headers = headerBodySep >= 0 ? fullMessage.substring(0, headerBodySep) : fullMessage;
-                String body = headerBodySep >= 0 ? fullMessage.substring(Math.min(fullMessage.length(), headerBodySep + 4)) : "";
-                int bodyBytes = body.getBytes(StandardCharsets.ISO_8859_1).length;
-
-                // Extract request line and path
-                String[] headerLines = headers.split("\r\n");
-                if (headerLines.length == 0) {
-                    throw new IllegalStateException("No request line in headers");
-                }
-                String requestLine = headerLines[0];
-                String[] rlParts = requestLine.split(" ");
-                if (rlParts.length >= 2) {
-                    String newPath = rlParts[1];
-                    try {
-                        mutatedRequest = mutatedRequest.withPath(newPath);
-                    } catch (Exception exPath) {
-                        logger.log(LogLevel.DEBUG, origin, reqPath, "withPath failed: " + exPath);
-                    }
-                }
+                String decoded = rule.getDecodePipeline().apply(transformed);
 
-                // Apply headers (skip request line)
-                for (int i = 1; i < headerLines.length; i++) {
-                    String line = headerLines[i];
-                    int idx = line.indexOf(':');
-                    if (idx <= 0) continue;
-                    String name = line.substring(0, idx).trim();
-                    String value = line.substring(idx + 1).trim();
-                    try {
-                        mutatedRequest = mutatedRequest.withHeader(name, value);
-                    } catch (Exception exHdr) {
-                        // ignore header failures
-                    }
+                String insert;
+                if (rule.getMutationMode() == MutationMode.STRING) {
+                    insert = rule.getText() == null ? "" : rule.getText();
+                } else {
+                    insert = rule.nextRandomValue();
                 }
 
-                // Apply body in-place (ISO_8859_1 bytes)
-                try {
-                    mutatedRequest = mutatedRequest.withBody(body);
-                } catch (Exception exBody) {
-                    // ignore body failures
+                String mutatedValue;
+                if (rule.getPosition() == Position.PREFIX) {
+                    mutatedValue = insert + decoded;
+                } else {
+                    mutatedValue = decoded + insert;
                 }
 
-                // Update parsed URL/query parameters in-place for any user-def placeholders
-                if (!userDefReplacements.isEmpty()) {
-                    try {
-                        List<HttpParameter> updatedParams = new ArrayList<>();
-                        for (ParsedHttpParameter p : mutatedRequest.parameters()) {
-                            String pname = p.name();
-                            String pvalue = p.value();
-                            boolean changed = false;
-                            for (Map.Entry<String, String> rep : userDefReplacements.entrySet()) {
-                                String ph = "{$" + rep.getKey() + "$}";
-                                String rv = rep.getValue();
-                                if (pname.contains(ph)) {
-                                    pname = pname.replace(ph, rv);
-                                    changed = true;
-                                }
-                                if (pvalue.contains(ph)) {
-                                    pvalue = pvalue.replace(ph, rv);
-                                    changed = true;
-                                }
-                            }
-                            if (changed) {
-                                updatedParams.add(HttpParameter.parameter(pname, pvalue, p.type()));
-                            } else {
-                                updatedParams.add(p);
-                            }
-                        }
-                        // apply updated parameters only if something changed
-                        mutatedRequest = mutatedRequest.withUpdatedParameters(updatedParams);
-                    } catch (Exception exParams) {
-                        logger.log(LogLevel.DEBUG, origin, reqPath, "withUpdatedParameters (user-def) failed: " + exParams);
-                    }
-                }
+                transformed = rule.getEncodePipeline().apply(mutatedValue);
             } catch (Exception ex) {
                 logger.log(LogLevel.DEBUG, origin, reqPath,
-                        "Failed to apply in-place updates from mutated full message, falling back to parameter-mutated request: " + ex);
-                // keep mutatedRequest as the one built from parameters to avoid blocking/silently failing
+                        "Exception mutating param " + name + ": " + ex);
             }
         }
+        return transformed;
+    }
 
-        // Logging based on mode and log level
-        try {
-            String jsonLog = buildLogJson(allParamValues, changedParamValues, substitutedParams, hasSubstituteRules);
-            if (jsonLog != null && !jsonLog.isEmpty()) {
-                logger.log(logger.getLogLevel(), origin, reqPath, jsonLog);
+    // Mutates the values selected in a structured body and logs them like parameters, by location.
+    private final class BodyFieldMutator implements BodyValueMutator {
+        private final ParamLog paramLog;
+        private final boolean logAll;
+        private final boolean logChanged;
+        private final String origin;
+        private final String reqPath;
+        int changed;
+
+        BodyFieldMutator(ParamLog paramLog, boolean logAll, boolean logChanged, String origin, String reqPath) {
+            this.paramLog = paramLog;
+            this.logAll = logAll;
+            this.logChanged = logChanged;
+            this.origin = origin;
+            this.reqPath = reqPath;
+        }
+
+        @Override
+        public String mutate(String location, String value, List<ParamMutatorRule> rules) {
+            String transformed = applyRules(rules, location, value, origin, reqPath);
+            boolean isChanged = !transformed.equals(value);
+            if (logAll || (logChanged && isChanged)) {
+                paramLog.add(location, transformed, isChanged ? ParamLog.Kind.MUTATED : ParamLog.Kind.ORIGINAL);
             }
-        } catch (Exception ex) {
-            logger.log(LogLevel.DEBUG, origin, reqPath, "Exception building JSON log: " + ex);
+            if (!isChanged) {
+                return null;
+            }
+            changed++;
+            return transformed;
+        }
+    }
+
+    // Finds the SUBSTITUTE rule for a placeholder and generates (or reuses) its replacement.
+    private String resolvePlaceholder(ExtensionConfig cfg, Origin target, String reqPath,
+                                      String placeholderName, Map<String, String> userDefReplacements) {
+        String replacement = userDefReplacements.get(placeholderName);
+        if (replacement != null) {
+            return replacement;
         }
 
-        // Return mutated request
-        return RequestToBeSentAction.continueWith(mutatedRequest, annotations);
+        ParamMutatorRule matchingRule = cfg.getIndex().findSubstituteRule(placeholderName, target, reqPath);
+        return generateReplacement(matchingRule, placeholderName, target.getKey(), reqPath, userDefReplacements);
     }
 
-    private String buildLogJson(Map<String, String> allParams, Map<String, String> changedParams, 
-                                  Map<String, String> substitutedParams, boolean hasSubstituteRules) {
-        LogLevel currentLevel = logger.getLogLevel();
-        
-        Map<String, String> logData = new HashMap<>();
-        
-        if (hasSubstituteRules) {
-            // Substitute mode logging
-            if (currentLevel == LogLevel.DEBUG) {
-                // DEBUG: log all parameters + substituted parameters
-                logData.putAll(allParams);
-                logData.putAll(substitutedParams);
-            } else {
-                // INFO: log only substituted parameters
-                logData.putAll(substitutedParams);
-            }
+    // Generates (once per request and name) the replacement for a placeholder; null leaves it untouched.
+    private String generateReplacement(ParamMutatorRule matchingRule, String placeholderName, String origin,
+                                       String reqPath, Map<String, String> userDefReplacements) {
+        if (matchingRule == null) {
+            return null;
+        }
+        String replacement = userDefReplacements.get(placeholderName);
+        if (replacement != null) {
+            return replacement;
+        }
+
+        // generate replacement for this user_def name
+        if (matchingRule.getMutationMode() == MutationMode.STRING) {
+            replacement = matchingRule.getText() == null ? "" : matchingRule.getText();
         } else {
-            // Normal/Regex mode logging
-            if (currentLevel == LogLevel.DEBUG) {
-                // DEBUG: log all parameters
-                logData.putAll(allParams);
-            } else {
-                // INFO: log only mutated parameters
-                logData.putAll(changedParams);
-            }
+            replacement = matchingRule.nextRandomValue();
         }
-        
-        if (logData.isEmpty()) {
+        // apply encode chain (decode is meaningless for user_def)
+        try {
+            replacement = matchingRule.getEncodePipeline().apply(replacement);
+        } catch (Exception ex) {
+            logger.log(LogLevel.DEBUG, origin, reqPath,
+                    "Exception encoding user-def '" + placeholderName + "': " + ex);
             return null;
         }
-        
-        return mapToJson(logData);
+        userDefReplacements.put(placeholderName, replacement);
+
+        // WARN if replacement contains CR/LF which can break request framing
+        if (replacement.indexOf('\r') != -1 || replacement.indexOf('\n') != -1) {
+            if (logger.getLogLevel() == LogLevel.DEBUG) {
+                String sanitized = replacement.replace("\r", "\\r").replace("\n", "\\n");
+                logger.log(LogLevel.DEBUG, origin, reqPath,
+                        "Replacement for user-def '" + placeholderName + "' contains CR/LF, this may break request framing: " + sanitized);
+            }
+        }
+        return replacement;
     }
 
-    private String mapToJson(Map<String, String> map) {
-        if (map == null || map.isEmpty()) {
-            return "{}";
+    // Pushes only the changed regions (request line, individual headers, body) back into the request.
+    private HttpRequest applySubstitution(HttpRequest request, PlaceholderSubstitutor.Result result,
+                                          String origin, String reqPath) {
+        HttpRequest updated = request;
+        List<String> lines = result.headerLines();
+        List<HttpHeader> originalHeaders = request.headers();
+
+        if (result.isRequestLineChanged() || result.isStructural()) {
+            String[] rlParts = lines.get(0).split(" ");
+            if (rlParts.length >= 2) {
+                try {
+                    updated = updated.withPath(rlParts[1]);
+                } catch (Exception exPath) {
+                    logger.log(LogLevel.DEBUG, origin, reqPath, "withPath failed: " + exPath);
+                }
+            }
         }
-        
-        StringBuilder json = new StringBuilder("{");
-        boolean first = true;
-        for (Map.Entry<String, String> entry : map.entrySet()) {
-            if (!first) {
-                json.append(",");
+
+        if (result.isStructural()) {
+            // header line layout changed: drop the old headers and add the new ones in order
+            updated = updated.withRemovedHeaders(originalHeaders);
+            for (int i = 1; i < lines.size(); i++) {
+                HttpHeader h = parseHeader(lines.get(i));
+                if (h != null) {
+                    updated = updated.withAddedHeader(h);
+                }
+            }
+        } else {
+            BitSet changed = result.getChangedHeaderLines();
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                HttpHeader h = parseHeader(lines.get(i));
+                if (h == null || i - 1 >= originalHeaders.size()) {
+                    continue;
+                }
+                HttpHeader old = originalHeaders.get(i - 1);
+                try {
+                    if (old.name().equals(h.name())) {
+                        updated = updated.withUpdatedHeader(h);
+                    } else {
+                        updated = updated.withRemovedHeader(old).withAddedHeader(h);
+                    }
+                } catch (Exception exHdr) {
+                    logger.log(LogLevel.DEBUG, origin, reqPath, "Header update failed: " + exHdr);
+                }
+            }
+        }
+
+        if (result.isBodyChanged()) {
+            byte[] body = result.body();
+            updated = updated.withBody(ByteArray.byteArray(body));
+
+            // adjust Content-Length when body size changed (unless chunked); never add it if absent
+            String te = updated.headerValue("Transfer-Encoding");
+            boolean chunked = te != null && te.toLowerCase().contains("chunked");
+            if (!chunked && updated.hasHeader("Content-Length")) {
+                updated = updated.withUpdatedHeader("Content-Length", String.valueOf(body.length));
             }
-            first = false;
-            json.append("\"").append(escapeJson(entry.getKey())).append("\":");
-            json.append("\"").append(escapeJson(entry.getValue())).append("\"");
         }
-        json.append("}");
-        return json.toString();
+
+        return updated;
     }
 
-    private String escapeJson(String s) {
-        if (s == null) {
-            return "";
+    private static HttpHeader parseHeader(String line) {
+        int idx = line.indexOf(':');
+        if (idx <= 0) {
+            return null;
         }
-        return s.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\b", "\\b")
-                .replace("\f", "\\f")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+        return HttpHeader.httpHeader(line.substring(0, idx).trim(), line.substring(idx + 1).trim());
     }
 
     @Override
     public ResponseReceivedAction handleHttpResponseReceived(HttpResponseReceived responseReceived) {
         return ResponseReceivedAction.continueWith(responseReceived);
     }
-
-    private String buildOrigin(HttpService service) {
-        String scheme = service.secure() ? "https" : "http";
-        String host = service.host();
-        int port = service.port();
-
-        boolean isStandard =
-                (!service.secure() && port == 80) ||
-                        (service.secure() && port == 443);
-
-        if (isStandard || port <= 0) {
-            return scheme + "://" + host;
-        }
-        return scheme + "://" + host + ":" + port;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,367 @@
+package burp.parammutator.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Byte-level {$name$} substitution over a raw HTTP request.
+// Matches the same text as the former regex \{\$([^\}]+)\$\}: the name runs up to the first '}'
+// and must be followed by "$}". Only regions that actually change are reported back so the
+// caller can update the request in place (path / single headers / body).
+public final class PlaceholderSubstitutor {
+
+    public static final String MARKER = "{$";
+
+    public interface Resolver {
+        // Returns the replacement for a placeholder name, or null to leave the placeholder untouched.
+        String resolve(String name);
+    }
+
+    public interface SlotResolver {
+        // Returns the replacement for the template's name at nameIndex, or null to leave it untouched.
+        String resolve(int nameIndex);
+    }
+
+    private PlaceholderSubstitutor() { }
+
+    // Position of the first "{$" at or after 'from', or -1.
+    public static int indexOfMarker(byte[] raw, int from, int to) {
+        for (int i = Math.max(0, from); i < to - 1; i++) {
+            if (raw[i] == '{' && raw[i + 1] == '$') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Scans raw once; returns null if no placeholder was replaced (nothing is allocated in that case).
+    public static Result substitute(byte[] raw, Resolver resolver) {
+        int start = indexOfMarker(raw, 0, raw.length);
+        if (start < 0) {
+            return null;
+        }
+
+        Result result = null;
+        int copied = 0;
+        int nextClose = -1;
+
+        while (start >= 0) {
+            // first '}' after the marker; it only moves forward, which keeps the scan linear
+            if (nextClose < start + 2) {
+                nextClose = indexOf(raw, (byte) '}', start + 2);
+                if (nextClose < 0) {
+                    break;
+                }
+            }
+
+            int nameEnd = nextClose - 1;
+            if (nameEnd <= start + 2 || raw[nameEnd] != '$') {
+                start = indexOfMarker(raw, start + 1, raw.length);
+                continue;
+            }
+
+            String name = new String(raw, start + 2, nameEnd - start - 2, StandardCharsets.ISO_8859_1);
+            String replacement = resolver.resolve(name);
+            int end = nextClose + 1;
+
+            if (replacement != null) {
+                if (result == null) {
+                    result = new Result(Layout.of(raw), raw.length + 64);
+                }
+                result.append(raw, copied, start - copied);
+                result.replaced(start, end, replacement.getBytes(StandardCharsets.ISO_8859_1));
+                copied = end;
+            }
+
+            start = indexOfMarker(raw, end, raw.length);
+        }
+
+        if (result == null) {
+            return null;
+        }
+        result.append(raw, copied, raw.length - copied);
+        return result;
+    }
+
+    // Pre-splits a message into literal segments and placeholder slots, so a request sent again
+    // with the same bytes can be substituted without scanning it.
+    public static Template template(byte[] raw) {
+        List<int[]> slots = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int start = indexOfMarker(raw, 0, raw.length);
+        int nextClose = -1;
+        while (start >= 0) {
+            if (nextClose < start + 2) {
+                nextClose = indexOf(raw, (byte) '}', start + 2);
+                if (nextClose < 0) {
+                    break;
+                }
+            }
+            int nameEnd = nextClose - 1;
+            if (nameEnd <= start + 2 || raw[nameEnd] != '$') {
+                start = indexOfMarker(raw, start + 1, raw.length);
+                continue;
+            }
+            String name = new String(raw, start + 2, nameEnd - start - 2, StandardCharsets.ISO_8859_1);
+            int nameIndex = names.indexOf(name);
+            if (nameIndex < 0) {
+                names.add(name);
+                nameIndex = names.size() - 1;
+            }
+            int end = nextClose + 1;
+            slots.add(new int[]{start, end, nameIndex});
+            start = indexOfMarker(raw, end, raw.length);
+        }
+        return new Template(raw, slots, names);
+    }
+
+    // Gather-write of fresh values into the template's literal segments; each name is resolved once.
+    // Returns null if no placeholder was replaced.
+    public static Result substitute(Template template, SlotResolver resolver) {
+        int slotCount = template.slotStart.length;
+        if (slotCount == 0) {
+            return null;
+        }
+        byte[][] values = new byte[template.names.length][];
+        boolean[] resolved = new boolean[template.names.length];
+        long size = template.raw.length;
+        boolean any = false;
+        for (int s = 0; s < slotCount; s++) {
+            int n = template.slotName[s];
+            if (!resolved[n]) {
+                String v = resolver.resolve(n);
+                values[n] = v == null ? null : v.getBytes(StandardCharsets.ISO_8859_1);
+                resolved[n] = true;
+            }
+            if (values[n] != null) {
+                size += values[n].length - (template.slotEnd[s] - template.slotStart[s]);
+                any = true;
+            }
+        }
+        if (!any) {
+            return null;
+        }
+
+        byte[] raw = template.raw;
+        Result result = new Result(template.layout, (int) Math.min(Integer.MAX_VALUE - 8, size));
+        int copied = 0;
+        for (int s = 0; s < slotCount; s++) {
+            byte[] value = values[template.slotName[s]];
+            if (value == null) {
+                continue;
+            }
+            result.append(raw, copied, template.slotStart[s] - copied);
+            result.replaced(template.slotStart[s], template.slotEnd[s], value);
+            copied = template.slotEnd[s];
+        }
+        result.append(raw, copied, raw.length - copied);
+        return result;
+    }
+
+    public static final class Template {
+        private final byte[] raw;
+        private final Layout layout;
+        private final int[] slotStart;
+        private final int[] slotEnd;
+        private final int[] slotName;
+        private final String[] names;
+
+        private Template(byte[] raw, List<int[]> slots, List<String> names) {
+            this.raw = raw;
+            this.layout = slots.isEmpty() ? null : Layout.of(raw);
+            this.slotStart = new int[slots.size()];
+            this.slotEnd = new int[slots.size()];
+            this.slotName = new int[slots.size()];
+            for (int i = 0; i < slots.size(); i++) {
+                int[] slot = slots.get(i);
+                slotStart[i] = slot[0];
+                slotEnd[i] = slot[1];
+                slotName[i] = slot[2];
+            }
+            this.names = names.toArray(new String[0]);
+        }
+
+        // true if the template was built from exactly these bytes
+        public boolean matches(byte[] other) {
+            return Arrays.equals(raw, other);
+        }
+
+        public int size() {
+            return raw.length;
+        }
+
+        // distinct placeholder names, in order of first appearance
+        public int getNameCount() {
+            return names.length;
+        }
+
+        public String getName(int nameIndex) {
+            return names[nameIndex];
+        }
+    }
+
+    // Line structure of the original message, needed to report which regions a substitution changed.
+    private static final class Layout {
+        final boolean hasSeparator;
+        final int originalHeaderEnd;
+        final int originalBodyOffset;
+        final int[] lineStarts; // start of request line and each header line in the original message
+
+        private Layout(boolean hasSeparator, int originalHeaderEnd, int originalBodyOffset, int[] lineStarts) {
+            this.hasSeparator = hasSeparator;
+            this.originalHeaderEnd = originalHeaderEnd;
+            this.originalBodyOffset = originalBodyOffset;
+            this.lineStarts = lineStarts;
+        }
+
+        static Layout of(byte[] raw) {
+            int sep = -1;
+            for (int i = 0; i + 3 < raw.length; i++) {
+                if (raw[i] == '\r' && raw[i + 1] == '\n' && raw[i + 2] == '\r' && raw[i + 3] == '\n') {
+                    sep = i;
+                    break;
+                }
+            }
+            int headerEnd = sep < 0 ? raw.length : sep;
+
+            int count = 1;
+            for (int i = 0; i + 1 < headerEnd; i++) {
+                if (raw[i] == '\r' && raw[i + 1] == '\n') count++;
+            }
+            int[] lineStarts = new int[count];
+            int n = 1;
+            for (int i = 0; i + 1 < headerEnd; i++) {
+                if (raw[i] == '\r' && raw[i + 1] == '\n') lineStarts[n++] = i + 2;
+            }
+            return new Layout(sep >= 0, headerEnd, sep < 0 ? raw.length : sep + 4, lineStarts);
+        }
+    }
+
+    private static int indexOf(byte[] raw, byte b, int from) {
+        for (int i = from; i < raw.length; i++) {
+            if (raw[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static final class Result {
+        private final boolean hasSeparator;
+        private final int originalHeaderEnd;
+        private final int originalBodyOffset;
+        private final int[] lineStarts; // start of request line and each header line in the original message
+
+        private byte[] buf;
+        private int len;
+        private int bodyOffset;
+
+        private boolean requestLineChanged;
+        private final BitSet changedHeaders = new BitSet();
+        private boolean bodyChanged;
+        private boolean structural;
+
+        private Result(Layout layout, int capacity) {
+            this.buf = new byte[capacity];
+            this.hasSeparator = layout.hasSeparator;
+            this.originalHeaderEnd = layout.originalHeaderEnd;
+            this.originalBodyOffset = layout.originalBodyOffset;
+            this.bodyOffset = originalBodyOffset;
+            this.lineStarts = layout.lineStarts;
+        }
+
+        private void append(byte[] src, int off, int n) {
+            ensure(n);
+            System.arraycopy(src, off, buf, len, n);
+            len += n;
+        }
+
+        private void replaced(int start, int end, byte[] rep) {
+            ensure(rep.length);
+            System.arraycopy(rep, 0, buf, len, rep.length);
+            len += rep.length;
+
+            if (start < originalBodyOffset) {
+                bodyOffset += rep.length - (end - start);
+                int first = lineOf(start);
+                int last = lineOf(end - 1);
+                if (first != last || end > originalHeaderEnd || containsLineBreak(rep)) {
+                    // line layout changes; caller has to rebuild every header
+                    structural = true;
+                } else if (first == 0) {
+                    requestLineChanged = true;
+                } else {
+                    changedHeaders.set(first);
+                }
+            } else {
+                bodyChanged = true;
+            }
+        }
+
+        private int lineOf(int pos) {
+            int i = Arrays.binarySearch(lineStarts, pos);
+            return i >= 0 ? i : -i - 2;
+        }
+
+        private static boolean containsLineBreak(byte[] b) {
+            for (byte x : b) {
+                if (x == '\r' || x == '\n') return true;
+            }
+            return false;
+        }
+
+        private void ensure(int n) {
+            if (len + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+            }
+        }
+
+        public boolean isRequestLineChanged() {
+            return requestLineChanged;
+        }
+
+        public boolean isBodyChanged() {
+            return bodyChanged;
+        }
+
+        // true when replacements added or removed line breaks in the header block
+        public boolean isStructural() {
+            return structural;
+        }
+
+        // header line numbers (1-based, request line is 0) whose content changed
+        public BitSet getChangedHeaderLines() {
+            return changedHeaders;
+        }
+
+        // Request line followed by every header line of the substituted message.
+        public List<String> headerLines() {
+            int headerEnd = hasSeparator ? bodyOffset - 4 : len;
+            List<String> lines = new ArrayList<>(lineStarts.length);
+            int start = 0;
+            for (int p = 0; p + 1 < headerEnd; p++) {
+                if (buf[p] == '\r' && buf[p + 1] == '\n') {
+                    lines.add(new String(buf, start, p - start, StandardCharsets.ISO_8859_1));
+                    start = p + 2;
+                    p++;
+                }
+            }
+            lines.add(new String(buf, start, headerEnd - start, StandardCharsets.ISO_8859_1));
+            return lines;
+        }
+
+        public int getBodyOffset() {
+            return bodyOffset;
+        }
+
+        public byte[] body() {
+            return Arrays.copyOfRange(buf, Math.min(bodyOffset, len), len);
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buf, len);
+        }
+    }
+}
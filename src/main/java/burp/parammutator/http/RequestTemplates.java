@@ -0,0 +1,148 @@
+package burp.parammutator.http;
+
+import burp.parammutator.model.ExtensionConfig;
+import burp.parammutator.model.Origin;
+import burp.parammutator.model.ParamMutatorRule;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Placeholder templates of recently substituted requests, keyed by a hash of the raw bytes.
+// Repeater and Intruder resend the same base message, so it is scanned once and later sends only
+// gather-write fresh values. Each template also remembers which SUBSTITUTE rule serves each name for
+// the config version and origin it was last used with; the path is part of the bytes.
+// A message becomes a template only on its second sighting, so one-off requests (Proxy, Scanner) are
+// scanned as before and never pin memory. The cache is bounded by the bytes it holds and evicted
+// CLOCK-style like MatchPlanCache: a hit sets a flag, one thread sweeps out entries unused since the last sweep.
+final class RequestTemplates {
+
+    // total message bytes kept; a sweep brings it down to 3/4 of this
+    static final long MAX_TOTAL_BYTES = 16L * 1024 * 1024;
+    // larger messages are substituted by scanning; their templates would pin too much memory
+    static final int MAX_TEMPLATE_BYTES = 256 * 1024;
+    // hashes of messages seen once, direct-mapped: a newer hash overwrites an older one in its slot
+    private static final int SEEN_SLOTS = 1024;
+
+    static final class Entry {
+        private final PlaceholderSubstitutor.Template template;
+        private final int bytes;
+        private volatile Binding binding;
+        volatile boolean used;
+
+        private Entry(PlaceholderSubstitutor.Template template, int bytes) {
+            this.template = template;
+            this.bytes = bytes;
+        }
+
+        PlaceholderSubstitutor.Template template() {
+            return template;
+        }
+
+        // rule per name index (null = no rule, placeholder stays), resolved once per config and origin
+        ParamMutatorRule[] rules(ExtensionConfig cfg, Origin origin, Function<String, ParamMutatorRule> lookup) {
+            Binding b = binding;
+            if (b != null && b.configVersion == cfg.getVersion() && b.originKey.equals(origin.getKey())) {
+                return b.rules;
+            }
+            ParamMutatorRule[] rules = new ParamMutatorRule[template.getNameCount()];
+            for (int i = 0; i < rules.length; i++) {
+                rules[i] = lookup.apply(template.getName(i));
+            }
+            binding = new Binding(cfg.getVersion(), origin.getKey(), rules);
+            return rules;
+        }
+    }
+
+    private static final class Binding {
+        final long configVersion;
+        final String originKey;
+        final ParamMutatorRule[] rules;
+
+        Binding(long configVersion, String originKey, ParamMutatorRule[] rules) {
+            this.configVersion = configVersion;
+            this.originKey = originKey;
+            this.rules = rules;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Entry> byHash = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    // racy by design: a lost write only delays a message's promotion by one sighting
+    private final int[] seen = new int[SEEN_SLOTS];
+
+    // null if the message is too large to cache or seen for the first time; the caller then scans it
+    Entry lookup(byte[] raw) {
+        if (raw.length > MAX_TEMPLATE_BYTES) {
+            return null;
+        }
+        int hash = Arrays.hashCode(raw);
+        Entry e = byHash.get(hash);
+        if (e != null && e.template.matches(raw)) {
+            if (!e.used) {
+                e.used = true;
+            }
+            return e;
+        }
+        int slot = (hash ^ (hash >>> 16)) & (SEEN_SLOTS - 1);
+        if (seen[slot] != hash) {
+            seen[slot] = hash;
+            return null;
+        }
+        // bytes are reserved before the insert, so concurrent sends cannot overshoot the budget;
+        // if it is still exceeded (another thread is sweeping), this message is scanned instead
+        if (totalBytes.addAndGet(raw.length) > MAX_TOTAL_BYTES) {
+            evict();
+            if (totalBytes.get() > MAX_TOTAL_BYTES) {
+                totalBytes.addAndGet(-raw.length);
+                return null;
+            }
+        }
+        e = new Entry(PlaceholderSubstitutor.template(raw), raw.length);
+        Entry old = byHash.put(hash, e);
+        if (old != null) {
+            totalBytes.addAndGet(-old.bytes);
+        }
+        return e;
+    }
+
+    long totalBytes() {
+        return totalBytes.get();
+    }
+
+    private void evict() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // one CLOCK pass: drop unused entries and clear the flag on the rest; if that is not enough,
+            // drop further entries in map (hash) order until under target
+            long target = MAX_TOTAL_BYTES * 3 / 4;
+            for (Iterator<Map.Entry<Integer, Entry>> it = byHash.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, Entry> me = it.next();
+                Entry e = me.getValue();
+                if (!e.used) {
+                    if (byHash.remove(me.getKey(), e)) {
+                        totalBytes.addAndGet(-e.bytes);
+                    }
+                } else {
+                    e.used = false;
+                }
+            }
+            for (Iterator<Map.Entry<Integer, Entry>> it = byHash.entrySet().iterator();
+                 it.hasNext() && totalBytes.get() > target; ) {
+                Map.Entry<Integer, Entry> me = it.next();
+                if (byHash.remove(me.getKey(), me.getValue())) {
+                    totalBytes.addAndGet(-me.getValue().bytes);
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
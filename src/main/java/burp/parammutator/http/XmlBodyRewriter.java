@@ -0,0 +1,324 @@
+package burp.parammutator.http;
+
+import burp.parammutator.model.BodyRules;
+import burp.parammutator.model.ParamMutatorRule;
+import burp.parammutator.util.SelectorTrie;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Single StAX pass over an XML (e.g. SOAP) body: every event is copied from an XMLStreamReader to an
+// XMLStreamWriter, with the selector trie stepped per element and attribute. Memory stays bounded by
+// the element depth plus the text of one selected element; no DOM is built.
+// A selected element is mutated only if it holds text alone (a leaf); its text is buffered until the
+// end tag shows that. Nothing is returned unless a value changed, so unselected bodies keep their bytes;
+// a read-only pre-scan skips the copy for documents no selector reaches.
+final class XmlBodyRewriter {
+
+    private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+    private static final XMLInputFactory INPUT = inputFactory();
+    private static final XMLOutputFactory OUTPUT = XMLOutputFactory.newInstance();
+
+    private XmlBodyRewriter() { }
+
+    // DTDs and external entities are never processed; a document that needs them is left untouched
+    private static XMLInputFactory inputFactory() {
+        XMLInputFactory f = XMLInputFactory.newInstance();
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        f.setProperty(XMLInputFactory.IS_COALESCING, false);
+        // the JDK parser folds CDATA into text events unless asked to keep them apart
+        if (f.isPropertySupported(REPORT_CDATA)) {
+            f.setProperty(REPORT_CDATA, true);
+        }
+        return f;
+    }
+
+    // true if the body starts (after whitespace or a UTF-8 BOM) with '<'
+    static boolean looksLikeXml(byte[] body) {
+        int i = 0;
+        if (body.length >= 3 && (body[0] & 0xFF) == 0xEF && (body[1] & 0xFF) == 0xBB && (body[2] & 0xFF) == 0xBF) {
+            i = 3;
+        }
+        for (; i < body.length; i++) {
+            byte b = body[i];
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                continue;
+            }
+            return b == '<';
+        }
+        return false;
+    }
+
+    // Returns the rewritten body, or null if no value changed. Malformed XML throws.
+    static byte[] rewrite(byte[] body, BodyRules.Scope scope, BodyValueMutator mutator) throws XMLStreamException {
+        // re-serializing costs several times a plain parse, so first check (read-only, stopping at
+        // the first hit) whether any selector reaches an element or attribute of this document
+        if (!anySelected(body, scope)) {
+            return null;
+        }
+        XMLStreamReader r = INPUT.createXMLStreamReader(new ByteArrayInputStream(body));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + 64);
+        XMLStreamWriter w = null;
+        boolean changed = false;
+
+        // per open element: trie state, qualified name and position among same-named siblings (for
+        // log locations, so repeated elements such as <pw>x</pw><pw>y</pw> log as distinct params)
+        SelectorTrie.State[] states = new SelectorTrie.State[16];
+        String[] names = new String[16];
+        int[] positions = new int[16];
+        // per depth: occurrences of each child name seen so far under the open element (index 0: the document)
+        List<Map<String, Integer>> siblings = new ArrayList<>();
+        int depth = 0;
+        SelectorTrie.State root = scope.start();
+
+        // selected element whose content is held back until it turns out to be a leaf
+        List<ParamMutatorRule> heldRules = null;
+        List<Integer> heldKinds = null;
+        List<String> heldTexts = null;
+
+        try {
+            while (true) {
+                int event = r.getEventType();
+                if (event == XMLStreamConstants.START_DOCUMENT) {
+                    String encoding = r.getCharacterEncodingScheme();
+                    w = OUTPUT.createXMLStreamWriter(out, encoding == null ? "UTF-8" : encoding);
+                    if (r.getVersion() != null) {
+                        w.writeStartDocument(encoding == null ? "UTF-8" : encoding, r.getVersion());
+                    }
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (heldRules != null) {
+                        // the held element has child elements, so it is not a value; write it back as it was
+                        flush(w, heldKinds, heldTexts);
+                        heldRules = null;
+                    }
+                    SelectorTrie.State parent = depth == 0 ? root : states[depth - 1];
+                    SelectorTrie.State state = scope.step(parent, r.getLocalName());
+                    String qname = qname(r.getPrefix(), r.getLocalName());
+                    if (depth == states.length) {
+                        states = Arrays.copyOf(states, depth * 2);
+                        names = Arrays.copyOf(names, depth * 2);
+                        positions = Arrays.copyOf(positions, depth * 2);
+                    }
+                    while (siblings.size() < depth + 2) {
+                        siblings.add(new HashMap<>());
+                    }
+                    states[depth] = state;
+                    names[depth] = qname;
+                    positions[depth] = siblings.get(depth).merge(qname, 1, Integer::sum);
+                    siblings.get(depth + 1).clear();
+                    depth++;
+
+                    w.writeStartElement(nz(r.getPrefix()), r.getLocalName(), nz(r.getNamespaceURI()));
+                    for (int i = 0; i < r.getNamespaceCount(); i++) {
+                        String prefix = r.getNamespacePrefix(i);
+                        if (prefix == null || prefix.isEmpty()) {
+                            w.writeDefaultNamespace(nz(r.getNamespaceURI(i)));
+                        } else {
+                            w.writeNamespace(prefix, nz(r.getNamespaceURI(i)));
+                        }
+                    }
+                    for (int i = 0; i < r.getAttributeCount(); i++) {
+                        String value = r.getAttributeValue(i);
+                        if (!state.isDead()) {
+                            SelectorTrie.State attr = scope.stepLiteral(state, "@" + r.getAttributeLocalName(i));
+                            List<ParamMutatorRule> rules = attr.isDead() ? List.of() : scope.rulesAt(attr);
+                            if (!rules.isEmpty()) {
+                                String location = location(names, positions, depth) + "/@" + qname(r.getAttributePrefix(i), r.getAttributeLocalName(i));
+                                String replacement = mutator.mutate(location, value, rules);
+                                if (replacement != null && !replacement.equals(value)) {
+                                    value = replacement;
+                                    changed = true;
+                                }
+                            }
+                        }
+                        String prefix = r.getAttributePrefix(i);
+                        if (prefix == null || prefix.isEmpty()) {
+                            w.writeAttribute(r.getAttributeLocalName(i), value);
+                        } else {
+                            w.writeAttribute(prefix, nz(r.getAttributeNamespace(i)), r.getAttributeLocalName(i), value);
+                        }
+                    }
+
+                    List<ParamMutatorRule> rules = state.isDead() ? List.of() : scope.rulesAt(state);
+                    if (!rules.isEmpty()) {
+                        heldRules = rules;
+                        heldKinds = new ArrayList<>();
+                        heldTexts = new ArrayList<>();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (heldRules != null) {
+                        String value = heldValue(heldKinds, heldTexts);
+                        String replacement = value == null ? null : mutator.mutate(location(names, positions, depth), value, heldRules);
+                        if (replacement != null && !replacement.equals(value)) {
+                            boolean cdata = heldKinds.size() == 1 && heldKinds.get(0) == XMLStreamConstants.CDATA
+                                    && !replacement.contains("]]>");
+                            if (cdata) {
+                                w.writeCData(replacement);
+                            } else {
+                                w.writeCharacters(replacement);
+                            }
+                            changed = true;
+                        } else {
+                            flush(w, heldKinds, heldTexts);
+                        }
+                        heldRules = null;
+                    }
+                    depth--;
+                    w.writeEndElement();
+                } else if (heldRules != null && event != XMLStreamConstants.END_DOCUMENT) {
+                    heldKinds.add(event);
+                    heldTexts.add(eventText(r, event));
+                } else {
+                    copy(w, r, event);
+                }
+
+                if (!r.hasNext()) {
+                    break;
+                }
+                r.next();
+            }
+            if (!changed) {
+                return null;
+            }
+            w.writeEndDocument();
+            w.flush();
+        } finally {
+            r.close();
+            if (w != null) {
+                w.close();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean anySelected(byte[] body, BodyRules.Scope scope) throws XMLStreamException {
+        XMLStreamReader r = INPUT.createXMLStreamReader(new ByteArrayInputStream(body));
+        try {
+            SelectorTrie.State[] states = new SelectorTrie.State[16];
+            int depth = 0;
+            SelectorTrie.State root = scope.start();
+            while (r.hasNext()) {
+                int event = r.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    SelectorTrie.State parent = depth == 0 ? root : states[depth - 1];
+                    SelectorTrie.State state = parent.isDead() ? parent : scope.step(parent, r.getLocalName());
+                    if (depth == states.length) {
+                        states = Arrays.copyOf(states, depth * 2);
+                    }
+                    states[depth++] = state;
+                    if (state.isDead()) {
+                        continue;
+                    }
+                    if (!scope.rulesAt(state).isEmpty()) {
+                        return true;
+                    }
+                    for (int i = 0; i < r.getAttributeCount(); i++) {
+                        SelectorTrie.State attr = scope.stepLiteral(state, "@" + r.getAttributeLocalName(i));
+                        if (!attr.isDead() && !scope.rulesAt(attr).isEmpty()) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        } finally {
+            r.close();
+        }
+    }
+
+    // text of a held leaf element; null if it holds anything besides text and CDATA (comments, PIs)
+    private static String heldValue(List<Integer> kinds, List<String> texts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < kinds.size(); i++) {
+            int kind = kinds.get(i);
+            if (kind != XMLStreamConstants.CHARACTERS && kind != XMLStreamConstants.CDATA
+                    && kind != XMLStreamConstants.SPACE) {
+                return null;
+            }
+            sb.append(texts.get(i));
+        }
+        return sb.toString();
+    }
+
+    private static void flush(XMLStreamWriter w, List<Integer> kinds, List<String> texts) throws XMLStreamException {
+        for (int i = 0; i < kinds.size(); i++) {
+            writeText(w, kinds.get(i), texts.get(i));
+        }
+    }
+
+    private static String eventText(XMLStreamReader r, int event) {
+        if (event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+            return r.getPITarget() + (r.getPIData() == null ? "" : " " + r.getPIData());
+        }
+        return r.hasText() ? r.getText() : "";
+    }
+
+    private static void copy(XMLStreamWriter w, XMLStreamReader r, int event) throws XMLStreamException {
+        switch (event) {
+            case XMLStreamConstants.CHARACTERS, XMLStreamConstants.SPACE, XMLStreamConstants.CDATA,
+                    XMLStreamConstants.COMMENT, XMLStreamConstants.ENTITY_REFERENCE ->
+                    writeText(w, event, r.getText());
+            case XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+                if (r.getPIData() == null) {
+                    w.writeProcessingInstruction(r.getPITarget());
+                } else {
+                    w.writeProcessingInstruction(r.getPITarget(), r.getPIData());
+                }
+            }
+            case XMLStreamConstants.DTD -> w.writeDTD(r.getText());
+            default -> { }
+        }
+    }
+
+    private static void writeText(XMLStreamWriter w, int kind, String text) throws XMLStreamException {
+        switch (kind) {
+            case XMLStreamConstants.CDATA -> w.writeCData(text);
+            case XMLStreamConstants.COMMENT -> w.writeComment(text);
+            case XMLStreamConstants.ENTITY_REFERENCE -> w.writeEntityRef(text);
+            case XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+                int space = text.indexOf(' ');
+                if (space < 0) {
+                    w.writeProcessingInstruction(text);
+                } else {
+                    w.writeProcessingInstruction(text.substring(0, space), text.substring(space + 1));
+                }
+            }
+            default -> w.writeCharacters(text);
+        }
+    }
+
+    // XPath-style: /Envelope/Body[1]/login[1]/pw[2]; the document element is unique and carries no position
+    private static String location(String[] names, int[] positions, int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int d = 0; d < depth; d++) {
+            sb.append('/').append(names[d]);
+            if (d > 0) {
+                sb.append('[').append(positions[d]).append(']');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String qname(String prefix, String local) {
+        return prefix == null || prefix.isEmpty() ? local : prefix + ":" + local;
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -1,11 +1,17 @@
 package burp.parammutator.log;
 
 import javax.swing.table.AbstractTableModel;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 public class Logger extends AbstractTableModel {
     private static final String[] COLS = {
@@ -16,24 +22,60 @@ public class Logger extends AbstractTableModel {
             "Message"
     };
 
-    private final List<LogEntry> entries = new ArrayList<>();
-    private LogLevel logLevel = LogLevel.DEBUG;
+    // LogEntry (header, 7 fields, AtomicBoolean) + Instant
+    private static final long ENTRY_OVERHEAD = 96;
+
+    // Fixed slot count of the ring; the byte cap below normally evicts long before this wraps.
+    private static final int MAX_ENTRIES = 1 << 19;
+
+    // Multi-producer ring: appenders claim a sequence number with one getAndIncrement (wait-free)
+    // and publish into slot seq & MASK. Live entries are the sequences in [head, tail).
+    private static final int MASK = MAX_ENTRIES - 1;
+    private final AtomicReferenceArray<LogEntry> slots = new AtomicReferenceArray<>(MAX_ENTRIES);
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    private volatile LogLevel logLevel = LogLevel.DEBUG;
 
     // Default 100MB
-    private long maxSizeBytes = 100L * 1024 * 1024;
-    private long currentSizeBytes = 0;
+    private volatile long maxSizeBytes = 100L * 1024 * 1024;
+    private final AtomicLong currentSizeBytes = new AtomicLong();
+
+    // EDT-only view of the ring the table model reads from: a circular window of published entries,
+    // advanced by refreshView() with one range-delete at the top and one range-insert at the bottom
+    private LogEntry[] viewBuf = new LogEntry[1024];
+    private int viewStart;
+    private int viewSize;
+    private long nextViewSeq;
+
+    // Optional disk store: one writer thread follows the ring and persists entries in order,
+    // after which the heap ring only stages the most recent few MB.
+    // clear() and disableDiskStore() only swap diskStore; the writer notices, closes the old store and
+    // switches over, so the EDT never waits for disk I/O. storeLock guards the swap and writer start/exit.
+    private static final long DISK_STAGING_BYTES = 8L * 1024 * 1024;
+    private static final long WRITER_IDLE_NANOS = 20_000_000L;
+    private final Object storeLock = new Object();
+    private volatile SegmentedLogStore diskStore;
+    private volatile long persistFrom;        // first sequence the current diskStore should hold
+    private Thread writer;                    // under storeLock; null when no writer runs
+    private long persistSeq;                  // writer thread only
+    private volatile long persistedSeq;       // entries below this are on disk
+    private final AtomicLong droppedEntries = new AtomicLong();
+
+    // EDT-only: the store the table currently pages from (null = in-memory view)
+    private SegmentedLogStore viewStore;
+    private long viewRows;
 
     private static final DateTimeFormatter DATETIMEFORMAT =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
                     .withZone(ZoneId.systemDefault());
 
-    private static Logger instance;
+    private static final class Holder {
+        private static final Logger INSTANCE = new Logger();
+    }
 
-    public static synchronized Logger getInstance() {
-        if (instance == null) {
-            instance = new Logger();
-        }
-        return instance;
+    public static Logger getInstance() {
+        return Holder.INSTANCE;
     }
 
     private Logger() {
@@ -41,54 +83,196 @@ public class Logger extends AbstractTableModel {
 
     public void setLogLevel(LogLevel level) {
         this.logLevel = level;
-        synchronized (this) {
-            recalcCurrentSize();
-            fireTableDataChanged();
-        }
     }
 
     public LogLevel getLogLevel() {
         return logLevel;
     }
 
-    public synchronized void log(LogLevel level, String origin, String path, String msg) {
+    public void log(LogLevel level, String origin, String path, String msg) {
         if (level.ordinal() < logLevel.ordinal()) {
             return;
         }
+        append(level, origin, path, msg, null);
+    }
+
+    // Structured row: the parameter triples are kept as-is and rendered to JSON only when displayed.
+    public void log(LogLevel level, String origin, String path, ParamLog params) {
+        if (level.ordinal() < logLevel.ordinal() || params == null || params.isEmpty()) {
+            return;
+        }
+        params.trim();
+        append(level, origin, path, null, params);
+    }
+
+    private void append(LogLevel level, String origin, String path, String msg, ParamLog params) {
+        long seq = tail.getAndIncrement();
+        LogEntry entry = new LogEntry(seq, level, origin, path, Instant.now(), msg, params);
+        currentSizeBytes.addAndGet(entry.size);
+
+        // slot reuse after a full wrap evicts the entry that lived there
+        LogEntry overwritten = slots.getAndSet((int) (seq & MASK), entry);
+        if (overwritten != null) {
+            release(overwritten);
+            advanceHead(overwritten.seq + 1);
+        }
+
+        evictOverBudget();
+    }
+
+    // Moves head forward (never backwards) to at least 'min'.
+    private void advanceHead(long min) {
+        long h;
+        while ((h = head.get()) < min) {
+            if (head.compareAndSet(h, min)) {
+                return;
+            }
+        }
+    }
+
+    // O(1) per evicted entry: pop from the head until the byte budget fits again.
+    private void evictOverBudget() {
+        long budget = diskStore != null ? Math.min(maxSizeBytes, DISK_STAGING_BYTES) : maxSizeBytes;
+        while (currentSizeBytes.get() > budget) {
+            long h = head.get();
+            if (h >= tail.get() - 1) {
+                // always keep the newest entry
+                return;
+            }
+            LogEntry e = slots.get((int) (h & MASK));
+            if (e == null || e.seq < h) {
+                // claimed but not yet published; its writer runs this loop again after publishing
+                return;
+            }
+            if (head.compareAndSet(h, h + 1) && e.seq == h) {
+                release(e);
+                // drop the reference so evicted rows really leave the heap; with a disk store
+                // an entry the writer has not persisted yet is left for the writer to clear
+                if (diskStore == null || e.seq < persistedSeq) {
+                    slots.compareAndSet((int) (h & MASK), e, null);
+                }
+            }
+        }
+    }
+
+    // Each entry's size is subtracted exactly once, by whichever thread evicts it first.
+    private void release(LogEntry e) {
+        if (e.evicted.compareAndSet(false, true)) {
+            currentSizeBytes.addAndGet(-e.size);
+        }
+    }
+
+    // EDT only. Called at a bounded rate by the Log tab; applies everything logged since the last call
+    // as at most one rowsDeleted (evicted from the top) and one rowsInserted (appended at the bottom).
+    public void refreshView() {
+        SegmentedLogStore store = diskStore;
+        if (store != viewStore) {
+            // switched between memory and disk (or the disk log was cleared): start the view over
+            viewStore = store;
+            viewRows = 0;
+            viewBuf = new LogEntry[1024];
+            viewStart = 0;
+            viewSize = 0;
+            nextViewSeq = head.get();
+            fireTableDataChanged();
+        }
+        if (store != null) {
+            // rows are paged in from disk on demand; only new row indexes are announced
+            long n = store.size();
+            if (n > viewRows) {
+                long from = viewRows;
+                viewRows = n;
+                fireTableRowsInserted((int) Math.min(from, Integer.MAX_VALUE - 1),
+                        (int) Math.min(n - 1, Integer.MAX_VALUE - 1));
+            }
+            return;
+        }
 
-        LogEntry entry = new LogEntry(level, origin, path, Instant.now(), msg);
+        long h = head.get();
+
+        int removed = 0;
+        while (viewSize > 0) {
+            LogEntry first = viewBuf[viewStart];
+            if (!first.evicted.get() && first.seq >= h) {
+                break;
+            }
+            viewBuf[viewStart] = null;
+            viewStart = (viewStart + 1) % viewBuf.length;
+            viewSize--;
+            removed++;
+        }
 
-        long estimatedSize = estimateEntrySize(entry);
+        if (nextViewSeq < h) {
+            // evicted before the view ever saw them
+            nextViewSeq = h;
+        }
+        long t = tail.get();
+        int added = 0;
+        while (nextViewSeq < t) {
+            LogEntry e = slots.get((int) (nextViewSeq & MASK));
+            if (e == null || e.seq < nextViewSeq) {
+                // claimed but not yet published; pick it up next time
+                break;
+            }
+            if (e.seq == nextViewSeq && !e.evicted.get()) {
+                appendToView(e);
+                added++;
+            }
+            nextViewSeq++;
+        }
 
-        while (currentSizeBytes + estimatedSize > maxSizeBytes && !entries.isEmpty()) {
-            LogEntry removed = entries.remove(0);
-            currentSizeBytes -= estimateEntrySize(removed);
+        if (removed > 0) {
+            fireTableRowsDeleted(0, removed - 1);
         }
+        if (added > 0) {
+            fireTableRowsInserted(viewSize - added, viewSize - 1);
+        }
+    }
 
-        entries.add(entry);
-        currentSizeBytes += estimatedSize;
+    private void appendToView(LogEntry e) {
+        if (viewSize == viewBuf.length) {
+            LogEntry[] grown = new LogEntry[viewBuf.length * 2];
+            for (int i = 0; i < viewSize; i++) {
+                grown[i] = viewAt(i);
+            }
+            viewBuf = grown;
+            viewStart = 0;
+        }
+        viewBuf[(viewStart + viewSize) % viewBuf.length] = e;
+        viewSize++;
+    }
 
-        fireTableRowsInserted(entries.size() - 1, entries.size() - 1);
+    private LogEntry viewAt(int row) {
+        return viewBuf[(viewStart + row) % viewBuf.length];
     }
 
-    private void recalcCurrentSize() {
-        currentSizeBytes = 0;
-        for (LogEntry e : entries) {
-            currentSizeBytes += estimateEntrySize(e);
+    // Live entries in order; slots claimed but not yet published are skipped.
+    public LogEntry[] snapshot() {
+        long t = tail.get();
+        long h = Math.max(head.get(), t - MAX_ENTRIES);
+        List<LogEntry> out = new ArrayList<>((int) Math.max(0, t - h));
+        for (long s = h; s < t; s++) {
+            LogEntry e = slots.get((int) (s & MASK));
+            if (e != null && e.seq == s && !e.evicted.get()) {
+                out.add(e);
+            }
         }
+        return out.toArray(new LogEntry[0]);
     }
 
-    private long estimateEntrySize(LogEntry entry) {
-        return (long) entry.level.name().length()
-                + (entry.origin != null ? entry.origin.length() : 0)
-                + (entry.path != null ? entry.path.length() : 0)
-                + (entry.msg != null ? entry.msg.length() : 0)
-                + 40;
+    // Approximate retained heap of one entry: the entry object, its Instant, and its strings/arrays.
+    // origin and path are counted per entry even though consecutive rows often share equal values.
+    private static long estimateEntrySize(String origin, String path, String msg, ParamLog params) {
+        return ENTRY_OVERHEAD
+                + ParamLog.stringSize(origin)
+                + ParamLog.stringSize(path)
+                + ParamLog.stringSize(msg)
+                + (params != null ? params.estimateSize() : 0);
     }
 
     @Override
     public int getRowCount() {
-        return entries.size();
+        return viewStore != null ? (int) Math.min(viewRows, Integer.MAX_VALUE) : viewSize;
     }
 
     @Override
@@ -102,95 +286,252 @@ public class Logger extends AbstractTableModel {
     }
 
     @Override
-    public synchronized Object getValueAt(int rowIndex, int columnIndex) {
-        LogEntry entry = entries.get(rowIndex);
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        LogEntry entry = viewStore != null ? viewStore.read(rowIndex) : viewAt(rowIndex);
+        return cell(entry, columnIndex);
+    }
+
+    // Any thread. Streams every stored row in order: from the disk store when it is enabled,
+    // otherwise from the in-memory ring. Used by the CSV export off the EDT.
+    public void forEachRow(Consumer<LogEntry> sink) {
+        SegmentedLogStore store = diskStore;
+        if (store == null) {
+            for (LogEntry e : snapshot()) {
+                sink.accept(e);
+            }
+            return;
+        }
+        long n = store.size();
+        for (long row = 0; row < n; row++) {
+            LogEntry e = store.readUncached(row);
+            if (e == null) {
+                // store closed or cleared meanwhile
+                return;
+            }
+            sink.accept(e);
+        }
+    }
+
+    // table cell of one entry, as shown in the Log tab
+    public static Object cell(LogEntry entry, int columnIndex) {
+        if (entry == null) {
+            return null;
+        }
         return switch (columnIndex) {
             case 0 -> entry.level;
             case 1 -> entry.origin;
             case 2 -> entry.path;
             case 3 -> DATETIMEFORMAT.format(entry.timestamp);
-            case 4 -> entry.msg;
+            case 4 -> entry.message();
             default -> null;
         };
     }
 
-    public synchronized void clear() {
-        entries.clear();
-        currentSizeBytes = 0;
-        fireTableDataChanged();
+    public void clear() {
+        long t = tail.get();
+        long h = head.getAndSet(Math.max(head.get(), t));
+        for (long s = Math.max(h, t - MAX_ENTRIES); s < t; s++) {
+            LogEntry e = slots.get((int) (s & MASK));
+            if (e != null && e.seq == s) {
+                release(e);
+                slots.compareAndSet((int) (s & MASK), e, null);
+            }
+        }
+
+        synchronized (storeLock) {
+            SegmentedLogStore old = diskStore;
+            if (old != null) {
+                // the writer closes the old store and starts the new one at 't'
+                persistFrom = t;
+                try {
+                    diskStore = new SegmentedLogStore(old.getDirectory());
+                } catch (IOException ex) {
+                    diskStore = null;
+                }
+                LockSupport.unpark(writer);
+            }
+        }
+    }
+
+    // ---- disk store ----
+
+    public void enableDiskStore(Path dir) throws IOException {
+        synchronized (storeLock) {
+            if (diskStore != null) {
+                return;
+            }
+            persistFrom = head.get();
+            persistedSeq = persistFrom;
+            diskStore = new SegmentedLogStore(dir);
+
+            if (writer == null) {
+                writer = new Thread(this::writerLoop, "ParamMutator-log-writer");
+                writer.setDaemon(true);
+                writer.start();
+            }
+        }
+        evictOverBudget();
+    }
+
+    // Stops persisting; the writer deletes the segment files and exits. The table falls back to the
+    // in-memory ring.
+    public void disableDiskStore() {
+        synchronized (storeLock) {
+            diskStore = null;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    public boolean isDiskStoreEnabled() {
+        return diskStore != null;
     }
 
-    public synchronized long getMaxSizeBytes() {
+    public long getDiskRowCount() {
+        SegmentedLogStore store = diskStore;
+        return store == null ? 0 : store.size();
+    }
+
+    public long getDroppedEntries() {
+        return droppedEntries.get();
+    }
+
+    private void writerLoop() {
+        SegmentedLogStore current = null;
+        while (true) {
+            SegmentedLogStore want = diskStore;
+            if (want != current) {
+                // cleared or disabled: the old store is closed here, never on the EDT
+                if (current != null) {
+                    current.close();
+                }
+                current = want;
+                if (want == null) {
+                    releaseUnpersisted();
+                    synchronized (storeLock) {
+                        if (diskStore == null) {
+                            writer = null;
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                persistSeq = persistFrom;
+                persistedSeq = persistSeq;
+            }
+
+            boolean wrote = false;
+            long t = tail.get();
+            while (persistSeq < t && diskStore == current) {
+                int idx = (int) (persistSeq & MASK);
+                LogEntry e = slots.get(idx);
+                if (e == null || e.seq < persistSeq) {
+                    // claimed but not yet published
+                    break;
+                }
+                if (e.seq > persistSeq) {
+                    // overwritten by a full wrap before it could be persisted
+                    droppedEntries.incrementAndGet();
+                } else {
+                    try {
+                        if (!current.append(e)) {
+                            droppedEntries.incrementAndGet();
+                        }
+                    } catch (IOException | RuntimeException ex) {
+                        droppedEntries.incrementAndGet();
+                    }
+                    if (e.evicted.get()) {
+                        slots.compareAndSet(idx, e, null);
+                    }
+                }
+                persistSeq++;
+                persistedSeq = persistSeq;
+                wrote = true;
+            }
+            if (!wrote) {
+                LockSupport.parkNanos(WRITER_IDLE_NANOS);
+            }
+        }
+    }
+
+    // Entries evicted from the ring while a store was attached stay in their slots until persisted;
+    // once the store is gone nothing will persist them, so let them go.
+    private void releaseUnpersisted() {
+        long t = tail.get();
+        for (long s = Math.max(persistSeq, t - MAX_ENTRIES); s < t; s++) {
+            int idx = (int) (s & MASK);
+            LogEntry e = slots.get(idx);
+            if (e != null && e.seq == s && e.evicted.get()) {
+                slots.compareAndSet(idx, e, null);
+            }
+        }
+    }
+
+    public long getMaxSizeBytes() {
         return maxSizeBytes;
     }
 
-    public synchronized void setMaxSizeBytes(long maxSizeBytes) {
+    public void setMaxSizeBytes(long maxSizeBytes) {
         this.maxSizeBytes = maxSizeBytes;
+        evictOverBudget();
+    }
 
-        Iterator<LogEntry> it = entries.iterator();
-        while (currentSizeBytes > maxSizeBytes && it.hasNext()) {
-            LogEntry removed = it.next();
-            currentSizeBytes -= estimateEntrySize(removed);
-            it.remove();
-        }
-        fireTableDataChanged();
+    public long getCurrentSizeBytes() {
+        return currentSizeBytes.get();
     }
 
-    public synchronized void logFullJson(String origin, String path, Map<String, String> paramValueMap) {
+    public void logFullJson(String origin, String path, Map<String, String> paramValueMap) {
         if (logLevel != LogLevel.DEBUG) {
             return;
         }
-        String json = toJson(paramValueMap);
-        log(LogLevel.DEBUG, origin, path, json);
+        log(LogLevel.DEBUG, origin, path, toParamLog(paramValueMap, ParamLog.Kind.ORIGINAL));
     }
 
-    public synchronized void logInfoJson(String origin, String path, Map<String, String> changedParamValueMap) {
+    public void logInfoJson(String origin, String path, Map<String, String> changedParamValueMap) {
         if (logLevel != LogLevel.INFO) {
             return;
         }
         if (changedParamValueMap == null || changedParamValueMap.isEmpty()) {
             return;
         }
-        String json = toJson(changedParamValueMap);
-        log(LogLevel.INFO, origin, path, json);
+        log(LogLevel.INFO, origin, path, toParamLog(changedParamValueMap, ParamLog.Kind.MUTATED));
     }
 
-    private String toJson(Map<String, String> paramValueMap) {
-        if (paramValueMap == null) {
-            return "{}";
-        }
-        try {
-            return paramValueMap.entrySet().stream()
-                    .map(e -> String.format("\"%s\":\"%s\"",
-                            escapeJson(e.getKey()),
-                            escapeJson(e.getValue())))
-                    .collect(Collectors.joining(",", "{", "}"));
-        } catch (Exception ex) {
-            return "{}";
+    private static ParamLog toParamLog(Map<String, String> paramValueMap, ParamLog.Kind kind) {
+        ParamLog params = new ParamLog(paramValueMap == null ? 0 : paramValueMap.size());
+        if (paramValueMap != null) {
+            for (Map.Entry<String, String> e : paramValueMap.entrySet()) {
+                params.add(e.getKey(), e.getValue(), kind);
+            }
         }
-    }
-
-    private String escapeJson(String s) {
-        if (s == null) {
-            return "";
-        }
-        return s.replace("\\", "\\\\")
-                .replace("\"", "\\\"");
+        return params;
     }
 
     public static class LogEntry {
+        final long seq;
         final LogLevel level;
         final String origin;
         final String path;
         final Instant timestamp;
         final String msg;
+        final ParamLog params;
+        final long size;
+        final AtomicBoolean evicted = new AtomicBoolean();
 
-        LogEntry(LogLevel level, String origin, String path, Instant timestamp, String msg) {
+        LogEntry(long seq, LogLevel level, String origin, String path, Instant timestamp,
+                 String msg, ParamLog params) {
+            this.seq = seq;
             this.level = level;
             this.origin = origin;
             this.path = path;
             this.timestamp = timestamp;
             this.msg = msg;
+            this.params = params;
+            this.size = estimateEntrySize(origin, path, msg, params);
+        }
+
+        // rendered on demand; structured rows are never turned into text unless someone looks at them
+        public String message() {
+            return msg != null ? msg : params.toJson();
         }
     }
 }
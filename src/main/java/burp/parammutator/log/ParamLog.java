@@ -0,0 +1,130 @@
+package burp.parammutator.log;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Structured payload of one request's log row: (param, value, kind) triples in parallel arrays.
+// Nothing is rendered when the row is logged; JSON is built only when a cell is shown or exported.
+public final class ParamLog {
+
+    public enum Kind {
+        ORIGINAL,
+        MUTATED,
+        SUBSTITUTED
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    // rough JVM sizes (compressed oops): String object + byte[] header, array header, reference
+    private static final int STRING_OVERHEAD = 40;
+    private static final int ARRAY_OVERHEAD = 16;
+    private static final int REF = 4;
+
+    private String[] names;
+    private String[] values;
+    private byte[] kinds;
+    private int size;
+
+    public ParamLog() {
+        this(8);
+    }
+
+    public ParamLog(int expected) {
+        int n = Math.max(1, expected);
+        names = new String[n];
+        values = new String[n];
+        kinds = new byte[n];
+    }
+
+    public void add(String name, String value, Kind kind) {
+        if (size == names.length) {
+            int n = size * 2;
+            names = Arrays.copyOf(names, n);
+            values = Arrays.copyOf(values, n);
+            kinds = Arrays.copyOf(kinds, n);
+        }
+        names[size] = name;
+        values[size] = value;
+        kinds[size] = (byte) kind.ordinal();
+        size++;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int i) {
+        return names[i];
+    }
+
+    public String value(int i) {
+        return values[i];
+    }
+
+    public Kind kind(int i) {
+        return KINDS[kinds[i]];
+    }
+
+    // drop unused capacity before the record is kept in the log
+    void trim() {
+        if (names.length != size) {
+            names = Arrays.copyOf(names, size);
+            values = Arrays.copyOf(values, size);
+            kinds = Arrays.copyOf(kinds, size);
+        }
+    }
+
+    long estimateSize() {
+        long bytes = 24 + 3L * ARRAY_OVERHEAD + (long) names.length * (2 * REF + 1);
+        for (int i = 0; i < size; i++) {
+            bytes += stringSize(names[i]) + stringSize(values[i]);
+        }
+        return bytes;
+    }
+
+    static long stringSize(String s) {
+        // compact strings: one byte per char for Latin-1 content, which covers nearly all parameter data
+        return s == null ? 0 : STRING_OVERHEAD + s.length();
+    }
+
+    // {"name":"value",...}; a name logged twice keeps its first position and its last value
+    public String toJson() {
+        if (size == 0) {
+            return "{}";
+        }
+        Map<String, String> merged = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            merged.put(names[i], values[i]);
+        }
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, String> entry : merged.entrySet()) {
+            if (!first) {
+                json.append(",");
+            }
+            first = false;
+            json.append("\"");
+            appendEscaped(json, entry.getKey());
+            json.append("\":\"");
+            appendEscaped(json, entry.getValue());
+            json.append("\"");
+        }
+        json.append("}");
+        return json.toString();
+    }
+
+    // JSON string escaping, including every control character below 0x20 (RANDOM or decoded values
+    // may contain them)
+    static void appendEscaped(StringBuilder json, String s) {
+        if (s != null) {
+            JsonStringEncoder.getInstance().quoteAsString(s, json);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package burp.parammutator.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Append-only log storage in memory-mapped segment files.
+// Records go into 64 MB data segments; a separate mapped offset index (8 bytes per row:
+// segment << 32 | offset) lets any row be read back directly. Only the page cache used by the
+// table lives on the heap, so the number of stored rows is bounded by disk, not by Burp's heap.
+// Appends and close() come from a single writer thread; reads from the EDT.
+public final class SegmentedLogStore implements Closeable {
+
+    private static final int SEGMENT_BYTES = 64 << 20;
+    private static final int INDEX_CHUNK_ROWS = 1 << 20;
+    private static final int PAGE_ROWS = 256;
+    private static final int MAX_CACHED_PAGES = 16;
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+    private static final ParamLog.Kind[] KINDS = ParamLog.Kind.values();
+
+    private final Path dir;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final List<MappedByteBuffer> indexChunks = new CopyOnWriteArrayList<>();
+
+    // writer thread only
+    private int writePos = SEGMENT_BYTES;
+    private long writtenBytes;
+
+    // published after the record and its index slot are written
+    private volatile long rowCount;
+    // set first by close(); the EDT may still hold this store for a refresh or two and then gets null
+    // rows instead of unmapped ones. The page cache is left to the EDT and dropped with the store.
+    private volatile boolean closed;
+
+    // EDT only: complete pages of decoded rows, least recently used evicted first
+    private final Map<Long, Logger.LogEntry[]> pageCache =
+            new LinkedHashMap<>(MAX_CACHED_PAGES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Logger.LogEntry[]> eldest) {
+                    return size() > MAX_CACHED_PAGES;
+                }
+            };
+
+    public SegmentedLogStore(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    public long size() {
+        return rowCount;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    // Returns false if the record does not fit into a single segment.
+    boolean append(Logger.LogEntry e) throws IOException {
+        byte[] origin = bytes(e.origin);
+        byte[] path = bytes(e.path);
+        byte[] msg = bytes(e.msg);
+
+        int n = e.params == null ? 0 : e.params.size();
+        byte[][] names = new byte[n][];
+        byte[][] values = new byte[n][];
+        long len = 4 + 1 + 8 + 4 + strLen(origin) + strLen(path) + 1;
+        if (e.params == null) {
+            len += strLen(msg);
+        } else {
+            len += 4;
+            for (int i = 0; i < n; i++) {
+                names[i] = bytes(e.params.name(i));
+                values[i] = bytes(e.params.value(i));
+                len += strLen(names[i]) + strLen(values[i]) + 1;
+            }
+        }
+        if (len > SEGMENT_BYTES) {
+            return false;
+        }
+
+        if (writePos + len > SEGMENT_BYTES) {
+            segments.add(map("segment-" + segments.size() + ".dat", SEGMENT_BYTES));
+            writePos = 0;
+        }
+        MappedByteBuffer seg = segments.get(segments.size() - 1);
+        int start = writePos;
+        int p = start;
+
+        seg.putInt(p, (int) len); p += 4;
+        seg.put(p, (byte) e.level.ordinal()); p += 1;
+        seg.putLong(p, e.timestamp.getEpochSecond()); p += 8;
+        seg.putInt(p, e.timestamp.getNano()); p += 4;
+        p = putStr(seg, p, origin);
+        p = putStr(seg, p, path);
+        if (e.params == null) {
+            seg.put(p, (byte) 0); p += 1;
+            p = putStr(seg, p, msg);
+        } else {
+            seg.put(p, (byte) 1); p += 1;
+            seg.putInt(p, n); p += 4;
+            for (int i = 0; i < n; i++) {
+                p = putStr(seg, p, names[i]);
+                p = putStr(seg, p, values[i]);
+                seg.put(p, (byte) e.params.kind(i).ordinal()); p += 1;
+            }
+        }
+        writePos = p;
+        writtenBytes += len;
+
+        long row = rowCount;
+        int chunk = (int) (row / INDEX_CHUNK_ROWS);
+        if (chunk == indexChunks.size()) {
+            indexChunks.add(map("index-" + chunk + ".idx", INDEX_CHUNK_ROWS * 8));
+        }
+        long location = ((long) (segments.size() - 1) << 32) | (start & 0xFFFFFFFFL);
+        indexChunks.get(chunk).putLong((int) (row % INDEX_CHUNK_ROWS) * 8, location);
+
+        rowCount = row + 1;
+        return true;
+    }
+
+    // EDT only. Null once the store is closed.
+    public Logger.LogEntry read(long row) {
+        if (closed) {
+            return null;
+        }
+        long page = row / PAGE_ROWS;
+        Logger.LogEntry[] cached = pageCache.get(page);
+        if (cached != null) {
+            return cached[(int) (row % PAGE_ROWS)];
+        }
+
+        long count = rowCount;
+        long first = page * PAGE_ROWS;
+        int rows = (int) Math.min(PAGE_ROWS, count - first);
+        if (rows <= 0) {
+            return null;
+        }
+        Logger.LogEntry[] loaded = new Logger.LogEntry[rows];
+        try {
+            for (int i = 0; i < rows; i++) {
+                loaded[i] = decode(first + i);
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            // closed by another thread while this page was being decoded
+            return null;
+        }
+        // the last page is still growing; only complete pages are cached
+        if (rows == PAGE_ROWS) {
+            pageCache.put(page, loaded);
+        }
+        return loaded[(int) (row - first)];
+    }
+
+    // Any thread; bypasses the page cache, so a full scan (CSV export) does not evict the table's pages.
+    // Null past the end or once the store is closed.
+    public Logger.LogEntry readUncached(long row) {
+        if (closed || row < 0 || row >= rowCount) {
+            return null;
+        }
+        try {
+            return decode(row);
+        } catch (IndexOutOfBoundsException ex) {
+            return null;
+        }
+    }
+
+    private Logger.LogEntry decode(long row) {
+        long location = indexChunks.get((int) (row / INDEX_CHUNK_ROWS))
+                .getLong((int) (row % INDEX_CHUNK_ROWS) * 8);
+        MappedByteBuffer seg = segments.get((int) (location >>> 32));
+        int p = (int) location + 4;
+
+        LogLevel level = LEVELS[seg.get(p)]; p += 1;
+        Instant ts = Instant.ofEpochSecond(seg.getLong(p), seg.getInt(p + 8)); p += 12;
+        int[] pos = {p};
+        String origin = getStr(seg, pos);
+        String path = getStr(seg, pos);
+        boolean structured = seg.get(pos[0]++) == 1;
+        if (!structured) {
+            return new Logger.LogEntry(row, level, origin, path, ts, getStr(seg, pos), null);
+        }
+        int n = seg.getInt(pos[0]);
+        pos[0] += 4;
+        ParamLog params = new ParamLog(n);
+        for (int i = 0; i < n; i++) {
+            String name = getStr(seg, pos);
+            String value = getStr(seg, pos);
+            params.add(name, value, KINDS[seg.get(pos[0]++)]);
+        }
+        return new Logger.LogEntry(row, level, origin, path, ts, null, params);
+    }
+
+    private MappedByteBuffer map(String name, int size) throws IOException {
+        try (FileChannel ch = FileChannel.open(dir.resolve(name),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int strLen(byte[] b) {
+        return 4 + (b == null ? 0 : b.length);
+    }
+
+    private static int putStr(MappedByteBuffer seg, int p, byte[] b) {
+        if (b == null) {
+            seg.putInt(p, -1);
+            return p + 4;
+        }
+        seg.putInt(p, b.length);
+        seg.put(p + 4, b);
+        return p + 4 + b.length;
+    }
+
+    private static String getStr(MappedByteBuffer seg, int[] pos) {
+        int len = seg.getInt(pos[0]);
+        pos[0] += 4;
+        if (len < 0) {
+            return null;
+        }
+        byte[] b = new byte[len];
+        seg.get(pos[0], b);
+        pos[0] += len;
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // Drops the mappings and deletes the segment files (best effort while mappings are still reachable).
+    @Override
+    public void close() {
+        closed = true;
+        segments.clear();
+        indexChunks.clear();
+        try (var files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                String name = f.getFileName().toString();
+                if (name.endsWith(".dat") || name.endsWith(".idx")) {
+                    Files.deleteIfExists(f);
+                }
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package burp.parammutator.metrics;
+
+import burp.api.montoya.core.ToolType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency per handler stage plus request/mutation counters, shared by all HTTP handler threads.
+public final class HandlerMetrics {
+
+    public enum Stage {
+        PARSE("Parameter parsing"),
+        MATCH("Rule matching"),
+        CODEC("Codec / value generation"),
+        BODY("JSON/XML body rewrite"),
+        SUBSTITUTE("Placeholder substitution"),
+        REBUILD("Request rebuild"),
+        LOG("Logging"),
+        TOTAL("Total (handler)");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // what happened to a request, counted per Burp tool
+    public enum ToolOutcome {
+        SKIPPED,
+        PASSED,
+        MUTATED
+    }
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+    private final LongAdder[][] toolCounts = new LongAdder[ToolType.values().length][ToolOutcome.values().length];
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder passedThrough = new LongAdder();
+    private final LongAdder mutatedRequests = new LongAdder();
+    private final LongAdder mutatedParams = new LongAdder();
+    private final LongAdder substitutions = new LongAdder();
+    private final LongAdder planHits = new LongAdder();
+    private final LongAdder planMisses = new LongAdder();
+    private final LongAdder codecFailures = new LongAdder();
+    private final LongAdder regexNameHits = new LongAdder();
+    private final LongAdder regexNameMisses = new LongAdder();
+
+    private static final class Holder {
+        private static final HandlerMetrics INSTANCE = new HandlerMetrics();
+    }
+
+    public static HandlerMetrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private HandlerMetrics() {
+        for (Stage s : Stage.values()) {
+            histograms.put(s, new LatencyHistogram());
+        }
+        for (LongAdder[] row : toolCounts) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = new LongAdder();
+            }
+        }
+    }
+
+    public void countTool(ToolType tool, ToolOutcome outcome) {
+        if (tool != null) {
+            toolCounts[tool.ordinal()][outcome.ordinal()].increment();
+        }
+    }
+
+    public long getToolCount(ToolType tool, ToolOutcome outcome) {
+        return toolCounts[tool.ordinal()][outcome.ordinal()].sum();
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    public void countRequest(boolean passThrough) {
+        requests.increment();
+        if (passThrough) {
+            passedThrough.increment();
+        }
+    }
+
+    public void countMutation(int params, int placeholders) {
+        if (params > 0 || placeholders > 0) {
+            mutatedRequests.increment();
+        }
+        mutatedParams.add(params);
+        substitutions.add(placeholders);
+    }
+
+    // match plan cache lookups (RuleIndex.PathScope.planFor)
+    public void countPlanLookup(boolean hit) {
+        if (hit) {
+            planHits.increment();
+        } else {
+            planMisses.increment();
+        }
+    }
+
+    // regex rule results per parameter name (RuleIndex.regexCandidates); only misses run the regexes
+    public void countRegexNameLookup(boolean hit) {
+        if (hit) {
+            regexNameHits.increment();
+        } else {
+            regexNameMisses.increment();
+        }
+    }
+
+    public long getRegexNameHits() {
+        return regexNameHits.sum();
+    }
+
+    public long getRegexNameMisses() {
+        return regexNameMisses.sum();
+    }
+
+    // a codec step that could not process its input (e.g. BASE64_DECODE of a non-Base64 value);
+    // the value passes on unchanged
+    public void countCodecFailure() {
+        codecFailures.increment();
+    }
+
+    public long getCodecFailures() {
+        return codecFailures.sum();
+    }
+
+    public long getPlanHits() {
+        return planHits.sum();
+    }
+
+    public long getPlanMisses() {
+        return planMisses.sum();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getPassedThrough() {
+        return passedThrough.sum();
+    }
+
+    public long getMutatedRequests() {
+        return mutatedRequests.sum();
+    }
+
+    public long getMutatedParams() {
+        return mutatedParams.sum();
+    }
+
+    public long getSubstitutions() {
+        return substitutions.sum();
+    }
+
+    public void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+        requests.reset();
+        passedThrough.reset();
+        mutatedRequests.reset();
+        mutatedParams.reset();
+        substitutions.reset();
+        planHits.reset();
+        planMisses.reset();
+        codecFailures.reset();
+        regexNameHits.reset();
+        regexNameMisses.reset();
+        for (LongAdder[] row : toolCounts) {
+            for (LongAdder a : row) {
+                a.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package burp.parammutator.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Timing of one user regex across all handler threads, plus how often it ran out of step budget.
+public final class RegexMatchStats {
+
+    // a single match slower than this marks the regex as slow
+    public static final long SLOW_MATCH_NANOS = 1_000_000L;
+
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder aborted = new LongAdder();
+
+    public void record(long nanos, boolean abortedMatch) {
+        matches.increment();
+        totalNanos.add(nanos);
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+        if (abortedMatch) {
+            aborted.increment();
+        }
+    }
+
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    public long getAborted() {
+        return aborted.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long n = matches.sum();
+        return n == 0 ? 0 : (double) totalNanos.sum() / n;
+    }
+
+    public boolean isSlow() {
+        return aborted.sum() > 0 || maxNanos.get() > SLOW_MATCH_NANOS;
+    }
+
+    public void reset() {
+        matches.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+        aborted.reset();
+    }
+}
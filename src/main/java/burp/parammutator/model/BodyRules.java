@@ -0,0 +1,97 @@
+package burp.parammutator.model;
+
+import burp.parammutator.util.SelectorTrie;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+// Rules addressing values inside one structured body format by selector path, with their selectors
+// merged into one trie. Like parameter rules they are addressed by position in config order.
+public final class BodyRules {
+
+    private final List<ParamMutatorRule> rules;
+    private final HostScopes hosts;
+    private final SelectorTrie selectors = new SelectorTrie();
+    private final BitSet all = new BitSet();
+    private final boolean anyPathFilter;
+
+    BodyRules(List<ParamMutatorRule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.hosts = new HostScopes(this.rules);
+        boolean paths = false;
+        for (int i = 0; i < this.rules.size(); i++) {
+            ParamMutatorRule r = this.rules.get(i);
+            selectors.add(r.getSelector(), i);
+            all.set(i);
+            paths |= r.isPathEnabled();
+        }
+        this.anyPathFilter = paths;
+    }
+
+    public List<ParamMutatorRule> getRules() {
+        return rules;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    // The rules whose host and path filters accept this request, or null if there are none.
+    public Scope forRequest(Origin origin, String requestPath) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        BitSet active = hosts.isUnfiltered() ? all : hosts.activeFor(origin);
+        if (anyPathFilter) {
+            BitSet onPath = new BitSet();
+            for (int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i + 1)) {
+                if (rules.get(i).matchesPath(requestPath)) {
+                    onPath.set(i);
+                }
+            }
+            active = onPath;
+        }
+        return active.isEmpty() ? null : new Scope(active);
+    }
+
+    // Rules of one request; walks the merged selector trie alongside the body.
+    public final class Scope {
+        private final BitSet active;
+
+        private Scope(BitSet active) {
+            this.active = active;
+        }
+
+        public SelectorTrie.State start() {
+            return selectors.start();
+        }
+
+        public SelectorTrie.State step(SelectorTrie.State state, String segment) {
+            return selectors.step(state, segment);
+        }
+
+        public SelectorTrie.State stepLiteral(SelectorTrie.State state, String segment) {
+            return selectors.stepLiteral(state, segment);
+        }
+
+        public SelectorTrie.State stepIndex(SelectorTrie.State state, int index) {
+            return selectors.stepIndex(state, index);
+        }
+
+        // active rules whose selector ends at this state, in config order
+        public List<ParamMutatorRule> rulesAt(SelectorTrie.State state) {
+            BitSet hits = new BitSet();
+            if (!selectors.collect(state, hits)) {
+                return List.of();
+            }
+            hits.and(active);
+            List<ParamMutatorRule> out = new ArrayList<>(hits.cardinality());
+            for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+                out.add(rules.get(i));
+            }
+            return out;
+        }
+    }
+}
@@ -1,47 +1,107 @@
 package burp.parammutator.model;
 
+import burp.api.montoya.core.ToolType;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Immutable, fully compiled config snapshot. The extension swaps whole snapshots into the handler's
+// AtomicReference; each request reads the reference once and works on that version throughout.
 public final class ExtensionConfig {
 
-    private List<ParamMutatorRule> rules;
-    private boolean httpEnabled;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version;
+    private final List<ParamMutatorRule> rules;
+    private final boolean httpEnabled;
+    private final boolean inScopeOnly;
+    // tools whose requests are mutated; requests from other tools pass through untouched
+    private final Set<ToolType> allowedTools;
+    private final boolean allToolsAllowed;
+    private final RuleIndex index;
 
     public ExtensionConfig() {
-        this.rules = new ArrayList<>();
-        this.httpEnabled = false; // default off
+        this(List.of(), false); // default off
     }
 
     public ExtensionConfig(List<ParamMutatorRule> rules,
                            boolean httpEnabled) {
+        this(rules, httpEnabled, false);
+    }
+
+    public ExtensionConfig(List<ParamMutatorRule> rules,
+                           boolean httpEnabled,
+                           boolean inScopeOnly) {
+        this(rules, httpEnabled, inScopeOnly, EnumSet.allOf(ToolType.class));
+    }
+
+    public ExtensionConfig(List<ParamMutatorRule> rules,
+                           boolean httpEnabled,
+                           boolean inScopeOnly,
+                           Set<ToolType> allowedTools) {
         // ensure "user_def" (substitute) rules are placed first in the internal list
-        this.rules = new ArrayList<>();
+        List<ParamMutatorRule> ordered = new ArrayList<>();
         if (rules != null) {
             // first add USER_DEF rules (preserve their relative order)
             for (ParamMutatorRule r : rules) {
                 if (r != null && r.getParamType() == ParamMutatorRule.ParamPatternType.SUBSTITUTE) {
-                    this.rules.add(r);
+                    ordered.add(r);
                 }
             }
             // then add all other rules (preserve their relative order)
             for (ParamMutatorRule r : rules) {
                 if (r != null && r.getParamType() != ParamMutatorRule.ParamPatternType.SUBSTITUTE) {
-                     this.rules.add(r);
-                 }
-             }
-         }
-         this.httpEnabled = httpEnabled;
-     }
+                    ordered.add(r);
+                }
+            }
+        }
+        this.rules = List.copyOf(ordered);
+        this.httpEnabled = httpEnabled;
+        this.inScopeOnly = inScopeOnly;
+        EnumSet<ToolType> tools = EnumSet.noneOf(ToolType.class);
+        if (allowedTools != null) {
+            tools.addAll(allowedTools);
+        }
+        this.allowedTools = Collections.unmodifiableSet(tools);
+        this.allToolsAllowed = tools.size() == ToolType.values().length;
+        this.index = new RuleIndex(this.rules);
+        this.version = VERSIONS.incrementAndGet();
+    }
+
+    // increases with every snapshot built, so the UI can tell which one the handler is running
+    public long getVersion() {
+        return version;
+    }
 
     public boolean isHttpEnabled() {
         return httpEnabled;
     }
 
+    // only mutate requests that are in Burp's target scope
+    public boolean isInScopeOnly() {
+        return inScopeOnly;
+    }
+
+    public Set<ToolType> getAllowedTools() {
+        return allowedTools;
+    }
+
+    public boolean isToolAllowed(ToolType tool) {
+        return allToolsAllowed || (tool != null && allowedTools.contains(tool));
+    }
+
     public List<ParamMutatorRule> getRules() {
         return rules;
     }
 
+    public RuleIndex getIndex() {
+        return index;
+    }
+
     public static ExtensionConfig empty() {
         return new ExtensionConfig();
     }
@@ -0,0 +1,119 @@
+package burp.parammutator.model;
+
+import java.util.Locale;
+
+// Host scope of a rule: "[http://|https://]host[:port]" where host is an exact name, "*.example.com"
+// (any subdomain, not the apex) or "*" (any host, e.g. "*:8443"). An IPv6 literal is given bracketed
+// ("[::1]:8443") or bare ("fe80::1"); a bare one cannot carry a port.
+public final class HostFilter {
+
+    private final String spec;
+    private final Boolean secure;
+    private final String exactHost;
+    private final String suffix;
+    private final int port;
+
+    public HostFilter(String spec) {
+        String s = spec.trim().toLowerCase(Locale.ROOT);
+        this.spec = s;
+
+        Boolean sec = null;
+        int schemeEnd = s.indexOf("://");
+        if (schemeEnd >= 0) {
+            String scheme = s.substring(0, schemeEnd);
+            if (scheme.equals("https")) {
+                sec = Boolean.TRUE;
+            } else if (scheme.equals("http")) {
+                sec = Boolean.FALSE;
+            } else {
+                throw new IllegalArgumentException("Unsupported scheme in host filter: " + scheme);
+            }
+            s = s.substring(schemeEnd + 3);
+        }
+        this.secure = sec;
+
+        // strip a trailing slash, then split off the port
+        if (s.endsWith("/")) {
+            s = s.substring(0, s.length() - 1);
+        }
+        String portPart = null;
+        if (s.startsWith("[")) {
+            int close = s.indexOf(']');
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed IPv6 literal in host filter: " + spec);
+            }
+            String rest = s.substring(close + 1);
+            if (!rest.isEmpty()) {
+                if (!rest.startsWith(":")) {
+                    throw new IllegalArgumentException("Invalid host filter: " + spec);
+                }
+                portPart = rest.substring(1);
+            }
+            s = s.substring(1, close);
+        } else {
+            int portSep = s.indexOf(':');
+            // more than one ':' is a bare IPv6 literal, never host:port
+            if (portSep >= 0 && portSep == s.lastIndexOf(':')) {
+                portPart = s.substring(portSep + 1);
+                s = s.substring(0, portSep);
+            }
+        }
+        if (portPart != null) {
+            try {
+                this.port = Integer.parseInt(portPart);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid port in host filter: " + spec);
+            }
+            if (port <= 0 || port > 65535) {
+                throw new IllegalArgumentException("Invalid port in host filter: " + spec);
+            }
+        } else {
+            this.port = -1;
+        }
+
+        if (s.isEmpty()) {
+            throw new IllegalArgumentException("Empty host in host filter: " + spec);
+        }
+        if (s.equals("*")) {
+            this.exactHost = null;
+            this.suffix = null;
+        } else if (s.startsWith("*.")) {
+            this.exactHost = null;
+            this.suffix = s.substring(1);
+        } else if (s.indexOf('*') >= 0) {
+            throw new IllegalArgumentException("Only a leading \"*.\" wildcard is supported in host filter: " + spec);
+        } else {
+            this.exactHost = s;
+            this.suffix = null;
+        }
+    }
+
+    public boolean matches(Origin origin) {
+        if (secure != null && secure != origin.isSecure()) {
+            return false;
+        }
+        if (port != -1 && port != origin.getPort()) {
+            return false;
+        }
+        String host = unbracket(origin.getHost());
+        if (exactHost != null) {
+            return exactHost.equals(host);
+        }
+        if (suffix != null) {
+            return host.length() > suffix.length() && host.endsWith(suffix);
+        }
+        return true;
+    }
+
+    // Burp may report an IPv6 host with or without brackets; filters hold it without
+    private static String unbracket(String host) {
+        return host.length() > 1 && host.charAt(0) == '[' && host.charAt(host.length() - 1) == ']'
+                ? host.substring(1, host.length() - 1)
+                : host;
+    }
+
+    // normalized spec; equal specs match the same origins
+    public String getSpec() {
+        return spec;
+    }
+}
@@ -0,0 +1,65 @@
+package burp.parammutator.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Host filters of a rule list, grouped by distinct filter. The rule set active for an origin is
+// computed once and cached by origin key, so later requests to that origin cost one hash lookup.
+final class HostScopes {
+
+    // per-origin cache; cleared when it grows past this size
+    private static final int ORIGIN_CACHE_LIMIT = 1024;
+
+    private final BitSet unscoped = new BitSet();
+    private final HostFilter[] filters;
+    private final BitSet[] buckets;
+    private final ConcurrentHashMap<String, BitSet> byOrigin = new ConcurrentHashMap<>();
+
+    HostScopes(List<ParamMutatorRule> rules) {
+        Map<String, BitSet> grouped = new LinkedHashMap<>();
+        Map<String, HostFilter> specs = new LinkedHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            HostFilter f = rules.get(i).getHostFilter();
+            if (f == null) {
+                unscoped.set(i);
+            } else {
+                grouped.computeIfAbsent(f.getSpec(), k -> new BitSet()).set(i);
+                specs.putIfAbsent(f.getSpec(), f);
+            }
+        }
+        List<HostFilter> fs = new ArrayList<>(specs.values());
+        this.filters = fs.toArray(new HostFilter[0]);
+        this.buckets = new BitSet[filters.length];
+        for (int b = 0; b < filters.length; b++) {
+            buckets[b] = grouped.get(filters[b].getSpec());
+        }
+    }
+
+    // true if no rule has a host filter; every rule is then active for every origin
+    boolean isUnfiltered() {
+        return filters.length == 0;
+    }
+
+    // rules whose host filter accepts the origin (shared, do not modify)
+    BitSet activeFor(Origin origin) {
+        BitSet cached = byOrigin.get(origin.getKey());
+        if (cached != null) {
+            return cached;
+        }
+        BitSet active = (BitSet) unscoped.clone();
+        for (int b = 0; b < filters.length; b++) {
+            if (filters[b].matches(origin)) {
+                active.or(buckets[b]);
+            }
+        }
+        if (byOrigin.size() >= ORIGIN_CACHE_LIMIT) {
+            byOrigin.clear();
+        }
+        byOrigin.put(origin.getKey(), active);
+        return active;
+    }
+}
@@ -0,0 +1,32 @@
+package burp.parammutator.model;
+
+import java.util.List;
+
+// Rules to apply at each parameter position of one request shape, in config order.
+// Shared between requests of the same shape, so it is immutable.
+public final class MatchPlan {
+
+    private final List<List<ParamMutatorRule>> rulesByPosition;
+    private final boolean empty;
+
+    MatchPlan(List<List<ParamMutatorRule>> rulesByPosition) {
+        this.rulesByPosition = rulesByPosition;
+        boolean none = true;
+        for (List<ParamMutatorRule> rules : rulesByPosition) {
+            if (!rules.isEmpty()) {
+                none = false;
+                break;
+            }
+        }
+        this.empty = none;
+    }
+
+    public List<ParamMutatorRule> rulesAt(int position) {
+        return position < rulesByPosition.size() ? rulesByPosition.get(position) : List.of();
+    }
+
+    // true if no parameter of this shape is touched by any rule
+    public boolean isEmpty() {
+        return empty;
+    }
+}
@@ -0,0 +1,98 @@
+package burp.parammutator.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Bounded cache of match plans for one RuleIndex, so it is dropped together with its config snapshot.
+// Eviction is CLOCK-style (an approximation of LRU): a hit only sets a flag, and when the cache is full
+// one thread sweeps it, dropping entries that were not used since the previous sweep. Lookups never lock.
+final class MatchPlanCache {
+
+    static final int CAPACITY = 4096;
+
+    static final class Key {
+        private final BitSet activeRules;
+        private final String[] names;
+        private final byte[] types;
+        private final int hash;
+
+        Key(BitSet activeRules, String[] names, byte[] types) {
+            this.activeRules = activeRules;
+            this.names = names;
+            this.types = types;
+            this.hash = 31 * (31 * activeRules.hashCode() + Arrays.hashCode(names)) + Arrays.hashCode(types);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key k)) return false;
+            return hash == k.hash
+                    && Arrays.equals(types, k.types)
+                    && Arrays.equals(names, k.names)
+                    && activeRules.equals(k.activeRules);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        final MatchPlan plan;
+        volatile boolean used;
+
+        Entry(MatchPlan plan) {
+            this.plan = plan;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Entry> plans = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    MatchPlan get(Key key) {
+        Entry e = plans.get(key);
+        if (e == null) {
+            return null;
+        }
+        if (!e.used) {
+            e.used = true;
+        }
+        return e.plan;
+    }
+
+    void put(Key key, MatchPlan plan) {
+        if (plans.size() >= CAPACITY) {
+            evict();
+        }
+        plans.putIfAbsent(key, new Entry(plan));
+    }
+
+    private void evict() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // drop unused entries and clear the flag on the rest; if everything was used, drop a quarter
+            int target = CAPACITY * 3 / 4;
+            for (Iterator<Entry> it = plans.values().iterator(); it.hasNext(); ) {
+                Entry e = it.next();
+                if (!e.used) {
+                    it.remove();
+                } else {
+                    e.used = false;
+                }
+            }
+            for (Iterator<Entry> it = plans.values().iterator(); it.hasNext() && plans.size() > target; ) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package burp.parammutator.model;
+
+import java.util.Locale;
+
+// Scheme, host and port of a request target. The key is the "scheme://host[:port]" string used in logs
+// and as the lookup key for per-host rule sets.
+public final class Origin {
+
+    private final boolean secure;
+    private final String host;
+    private final int port;
+    private final String key;
+
+    public Origin(boolean secure, String host, int port) {
+        this.secure = secure;
+        this.host = host == null ? "" : host.toLowerCase(Locale.ROOT);
+        this.port = port;
+
+        String scheme = secure ? "https" : "http";
+        boolean isStandard = (!secure && port == 80) || (secure && port == 443);
+        String h = host == null ? "" : host;
+        if (h.indexOf(':') >= 0 && !h.startsWith("[")) {
+            // bare IPv6 literal: bracket it so the port stays readable
+            h = "[" + h + "]";
+        }
+        this.key = isStandard || port <= 0
+                ? scheme + "://" + h
+                : scheme + "://" + h + ":" + port;
+    }
+
+    public boolean isSecure() {
+        return secure;
+    }
+
+    // lower case
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -1,11 +1,23 @@
 package burp.parammutator.model;
 
+import burp.parammutator.metrics.RegexMatchStats;
+import burp.parammutator.util.CodecPipeline;
+import burp.parammutator.util.GuardedRegex;
+import burp.parammutator.util.JsonPointers;
+import burp.parammutator.util.PathTrie;
+import burp.parammutator.util.RandomPool;
+import burp.parammutator.util.RandomPools;
+import burp.parammutator.util.XmlPaths;
+
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Objects;
 
+// Immutable once constructed: patterns and codec pipelines are compiled up front, so a rule can be
+// shared by every handler thread of a published config snapshot.
 public final class ParamMutatorRule {
 
-    private String pattern;
+    private final String pattern;
 
     // OLD:
     // private boolean regex;
@@ -14,27 +26,43 @@ public final class ParamMutatorRule {
     public enum ParamPatternType {
         SUBSTITUTE,
         NORMAL,
-        REGEX
+        REGEX,
+        // pattern is a JSON pointer into the request body, e.g. /items/*/email
+        JSON,
+        // pattern is an XPath-like element/attribute path into the request body, e.g. //order/@id
+        XML
     }
 
     // internal name: 'mode' (alias of previous paramType)
-    private ParamPatternType mode;
-
-    private boolean pathEnabled;
-    private String pathPattern;
-    private boolean pathRegex;
-    private MutationMode mutationMode = MutationMode.RANDOM;
-    private RandomType type;
-    private int length;
-    private String text;
-    private Position position;
-    private List<CodecOp> decodeChain;
-    private List<CodecOp> encodeChain;
-    private transient Pattern compiledPattern;
-    private transient Pattern compiledPathPattern;
+    private final ParamPatternType mode;
+
+    private final boolean pathEnabled;
+    private final String pathPattern;
+    private final PathMatchMode pathMode;
+    // empty = any host
+    private final String hostPattern;
+    private final MutationMode mutationMode;
+    private final RandomType type;
+    private final int length;
+    private final String text;
+    private final Position position;
+    private final List<CodecOp> decodeChain;
+    private final List<CodecOp> encodeChain;
+    // budgeted matchers; each keeps the timing stats of its regex
+    private final transient GuardedRegex compiledPattern;
+    private final transient GuardedRegex compiledPathPattern;
+    private final transient PathTrie compiledPathGlob;
+    private final transient HostFilter hostFilter;
+    // body selector segments for JSON and XML rules, null otherwise
+    private final transient String[] selector;
+    private final transient CodecPipeline decodePipeline;
+    private final transient CodecPipeline encodePipeline;
+    // resolved on first use; the pool registry is shared, so this is a cache rather than rule state
+    private transient volatile RandomPool randomPool;
 
     public ParamMutatorRule() {
-        // default
+        this("", ParamPatternType.NORMAL, MutationMode.RANDOM, RandomType.NUMERIC, Position.PREFIX, 4, null,
+                null, null, false, "", false);
     }
 
     // convenience ctor for existing usage – treat regex flag as NORMAL/REGEX
@@ -82,7 +110,7 @@ public final class ParamMutatorRule {
                 false);
     }
 
-    // NEW canonical ctor using ParamPatternType
+    // path "Is regex?" flag: true = REGEX, false = EXACT
     public ParamMutatorRule(String pattern,
                             ParamPatternType paramType,
                             MutationMode mutationMode,
@@ -95,6 +123,40 @@ public final class ParamMutatorRule {
                             boolean pathEnabled,
                             String pathPattern,
                             boolean pathRegex) {
+        this(pattern, paramType, mutationMode, type, position, length, text, decodeChain, encodeChain,
+                pathEnabled, pathPattern, pathRegex ? PathMatchMode.REGEX : PathMatchMode.EXACT);
+    }
+
+    public ParamMutatorRule(String pattern,
+                            ParamPatternType paramType,
+                            MutationMode mutationMode,
+                            RandomType type,
+                            Position position,
+                            int length,
+                            String text,
+                            List<CodecOp> decodeChain,
+                            List<CodecOp> encodeChain,
+                            boolean pathEnabled,
+                            String pathPattern,
+                            PathMatchMode pathMode) {
+        this(pattern, paramType, mutationMode, type, position, length, text, decodeChain, encodeChain,
+                pathEnabled, pathPattern, pathMode, "");
+    }
+
+    // canonical ctor
+    public ParamMutatorRule(String pattern,
+                            ParamPatternType paramType,
+                            MutationMode mutationMode,
+                            RandomType type,
+                            Position position,
+                            int length,
+                            String text,
+                            List<CodecOp> decodeChain,
+                            List<CodecOp> encodeChain,
+                            boolean pathEnabled,
+                            String pathPattern,
+                            PathMatchMode pathMode,
+                            String hostPattern) {
         this.pattern = pattern;
         this.mode = paramType == null ? ParamPatternType.NORMAL : paramType;
 
@@ -104,32 +166,47 @@ public final class ParamMutatorRule {
         this.length = length;
         this.text = text;
 
-        this.decodeChain = decodeChain;
-        this.encodeChain = encodeChain;
+        this.decodeChain = immutableChain(decodeChain);
+        this.encodeChain = immutableChain(encodeChain);
 
         this.pathEnabled = pathEnabled;
         this.pathPattern = pathPattern;
-        this.pathRegex = pathRegex;
-
-        compilePattern();
-        compilePathPattern();
+        this.pathMode = pathMode == null ? PathMatchMode.EXACT : pathMode;
+        this.hostPattern = hostPattern == null ? "" : hostPattern.trim();
+
+        this.compiledPattern = mode == ParamPatternType.REGEX && pattern != null && !pattern.isEmpty()
+                ? new GuardedRegex(pattern)
+                : null;
+        boolean hasPathFilter = pathEnabled && pathPattern != null && !pathPattern.isEmpty();
+        this.compiledPathPattern = hasPathFilter && this.pathMode == PathMatchMode.REGEX
+                ? new GuardedRegex(pathPattern)
+                : null;
+        this.compiledPathGlob = hasPathFilter && this.pathMode == PathMatchMode.GLOB
+                ? singleGlob(pathPattern)
+                : null;
+        this.hostFilter = this.hostPattern.isEmpty() ? null : new HostFilter(this.hostPattern);
+        this.selector = switch (mode) {
+            case JSON -> JsonPointers.parse(pattern);
+            case XML -> XmlPaths.parse(pattern);
+            default -> null;
+        };
+        this.decodePipeline = CodecPipeline.compileDecode(this.decodeChain);
+        this.encodePipeline = CodecPipeline.compileEncode(this.encodeChain);
     }
 
-    // helper used by legacy constructors
-    private void compilePattern() {
-        if (mode == ParamPatternType.REGEX && pattern != null && !pattern.isEmpty()) {
-            compiledPattern = Pattern.compile(pattern);
-        } else {
-            compiledPattern = null;
-        }
+    private static PathTrie singleGlob(String glob) {
+        PathTrie trie = new PathTrie();
+        trie.add(glob, 0);
+        return trie;
     }
 
-    public void compilePathPattern() {
-        if (pathEnabled && pathRegex && pathPattern != null && !pathPattern.isEmpty()) {
-            compiledPathPattern = Pattern.compile(pathPattern);
-        } else {
-            compiledPathPattern = null;
+    private static List<CodecOp> immutableChain(List<CodecOp> chain) {
+        if (chain == null) {
+            return List.of();
         }
+        List<CodecOp> ops = new ArrayList<>(chain);
+        ops.removeIf(Objects::isNull);
+        return List.copyOf(ops);
     }
 
     public boolean matches(String paramName) {
@@ -137,20 +214,24 @@ public final class ParamMutatorRule {
         String pat = pattern == null ? "" : pattern;
 
         return switch (mode) {
-            case REGEX -> {
-                if (compiledPattern == null && !pat.isEmpty()) {
-                    compilePattern();
-                }
-                yield compiledPattern != null && compiledPattern.matcher(name).matches();
-            }
+            case REGEX -> compiledPattern != null && compiledPattern.matches(name);
             case NORMAL -> name.equals(pat);
-            case SUBSTITUTE -> {
-                // SUBSTITUTE rules are matched by placeholder replacement, not by parameter list
+            case SUBSTITUTE, JSON, XML -> {
+                // SUBSTITUTE rules are matched by placeholder replacement, JSON/XML rules by walking the body,
+                // not by parameter list
                 yield false;
             }
         };
     }
 
+    // GuardedRegex.MATCH / NO_MATCH / ABORTED of a REGEX rule's name pattern; NO_MATCH for other modes
+    public int matchRegex(String paramName) {
+        if (mode != ParamPatternType.REGEX || compiledPattern == null) {
+            return GuardedRegex.NO_MATCH;
+        }
+        return compiledPattern.match(paramName == null ? "" : paramName);
+    }
+
     public boolean matchesPath(String requestPath) {
         if (!pathEnabled) {
             return true;
@@ -163,21 +244,22 @@ public final class ParamMutatorRule {
             return false;
         }
 
-        if (pathRegex) {
-            if (compiledPathPattern == null) {
-                compilePathPattern();
-            }
-            return compiledPathPattern != null && compiledPathPattern.matcher(p).matches();
-        }
+        return switch (pathMode) {
+            case REGEX -> compiledPathPattern != null && compiledPathPattern.matches(p);
+            case GLOB -> compiledPathGlob != null && compiledPathGlob.matches(p);
+            case EXACT -> p.equals(filter);
+        };
+    }
 
-        return p.equals(filter);
+    public boolean matchesHost(Origin origin) {
+        return hostFilter == null || hostFilter.matches(origin);
     }
 
     public String getPattern() {
         return pattern;
     }
 
-    // NEW getter / setter
+    // NEW getter
     // legacy-compatible accessor (keeps older API)
     public ParamPatternType getParamType() {
         return mode == null ? ParamPatternType.NORMAL : mode;
@@ -188,16 +270,6 @@ public final class ParamMutatorRule {
         return mode == null ? ParamPatternType.NORMAL : mode;
     }
 
-    public void setMode(ParamPatternType m) {
-        this.mode = m == null ? ParamPatternType.NORMAL : m;
-        compilePattern();
-    }
-
-    // legacy-compatible setter
-    public void setParamType(ParamPatternType paramType) {
-        setMode(paramType);
-    }
-
     // legacy compatibility for UI/table code that still calls isRegex()
     public boolean isRegex() {
         return getParamType() == ParamPatternType.REGEX;
@@ -231,6 +303,28 @@ public final class ParamMutatorRule {
         return encodeChain;
     }
 
+    public RandomPool getRandomPool() {
+        RandomPool pool = randomPool;
+        if (pool == null) {
+            pool = RandomPools.forRule(type, length);
+            randomPool = pool;
+        }
+        return pool;
+    }
+
+    // RANDOM mode value, taken from the pre-generated pool (generated inline if the pool is empty)
+    public String nextRandomValue() {
+        return getRandomPool().next();
+    }
+
+    public CodecPipeline getDecodePipeline() {
+        return decodePipeline;
+    }
+
+    public CodecPipeline getEncodePipeline() {
+        return encodePipeline;
+    }
+
     public boolean isPathEnabled() {
         return pathEnabled;
     }
@@ -239,7 +333,36 @@ public final class ParamMutatorRule {
         return pathPattern;
     }
 
+    public PathMatchMode getPathMode() {
+        return pathMode;
+    }
+
+    public String getHostPattern() {
+        return hostPattern;
+    }
+
+    // selector segments of a JSON or XML rule ('*' / '**' are wildcards), null for other rules
+    public String[] getSelector() {
+        return selector == null ? null : selector.clone();
+    }
+
+    // null when the rule applies to every host
+    public HostFilter getHostFilter() {
+        return hostFilter;
+    }
+
+    // legacy compatibility
     public boolean isPathRegex() {
-        return pathRegex;
+        return pathMode == PathMatchMode.REGEX;
+    }
+
+    // null unless the parameter pattern is a regex
+    public RegexMatchStats getPatternStats() {
+        return compiledPattern == null ? null : compiledPattern.getStats();
+    }
+
+    // null unless the path filter is a regex
+    public RegexMatchStats getPathPatternStats() {
+        return compiledPathPattern == null ? null : compiledPathPattern.getStats();
     }
 }
@@ -0,0 +1,7 @@
+package burp.parammutator.model;
+
+public enum PathMatchMode {
+    EXACT,
+    GLOB,
+    REGEX
+}
@@ -0,0 +1,110 @@
+package burp.parammutator.model;
+
+import burp.api.montoya.core.ToolType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+// Turns rule table rows into a config snapshot off the EDT.
+// Rules are immutable, so a row that is unchanged since the last successful build reuses its compiled
+// rule (patterns, pipelines) and only new or edited rows are compiled. Nothing is returned for
+// publishing unless every row compiled.
+public final class RuleCompiler {
+
+    public static final class Result {
+        private final ExtensionConfig config;
+        private final Map<Integer, String> errors;
+        private final int compiled;
+        private final int reused;
+        private final long elapsedNanos;
+
+        Result(ExtensionConfig config, Map<Integer, String> errors, int compiled, int reused, long elapsedNanos) {
+            this.config = config;
+            this.errors = errors;
+            this.compiled = compiled;
+            this.reused = reused;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // null when any spec failed
+        public ExtensionConfig getConfig() {
+            return config;
+        }
+
+        // spec index -> error message
+        public Map<Integer, String> getErrors() {
+            return errors;
+        }
+
+        public int getCompiled() {
+            return compiled;
+        }
+
+        public int getReused() {
+            return reused;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    // compiled rules of the last published build
+    private Map<RuleSpec, ParamMutatorRule> previous = Map.of();
+
+    public synchronized Result compile(List<RuleSpec> specs, boolean httpEnabled, boolean inScopeOnly,
+                                       Set<ToolType> allowedTools) {
+        long start = System.nanoTime();
+        Map<RuleSpec, ParamMutatorRule> built = new HashMap<>(specs.size() * 2);
+        Map<Integer, String> errors = new LinkedHashMap<>();
+        List<ParamMutatorRule> rules = new ArrayList<>(specs.size());
+        int compiled = 0;
+        int reused = 0;
+
+        for (int i = 0; i < specs.size(); i++) {
+            RuleSpec spec = specs.get(i);
+            ParamMutatorRule rule = built.get(spec);
+            if (rule == null) {
+                rule = previous.get(spec);
+                if (rule != null) {
+                    reused++;
+                } else {
+                    try {
+                        rule = spec.compile();
+                        compiled++;
+                    } catch (PatternSyntaxException ex) {
+                        boolean inPath = ex.getPattern() != null && ex.getPattern().equals(spec.getPathPattern())
+                                && !ex.getPattern().equals(spec.getPattern());
+                        errors.put(i, (inPath ? "Invalid path regex: " : "Invalid parameter regex: ")
+                                + ex.getDescription() + " near index " + ex.getIndex());
+                        continue;
+                    } catch (IllegalArgumentException ex) {
+                        // e.g. a malformed host filter
+                        errors.put(i, ex.getMessage());
+                        continue;
+                    } catch (RuntimeException ex) {
+                        errors.put(i, "Invalid rule: " + ex.getMessage());
+                        continue;
+                    }
+                }
+                built.put(spec, rule);
+            } else {
+                reused++;
+            }
+            rules.add(rule);
+        }
+
+        if (!errors.isEmpty()) {
+            return new Result(null, Collections.unmodifiableMap(errors), compiled, reused, System.nanoTime() - start);
+        }
+        ExtensionConfig config = new ExtensionConfig(rules, httpEnabled, inScopeOnly, allowedTools);
+        previous = built;
+        return new Result(config, Map.of(), compiled, reused, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,443 @@
+package burp.parammutator.model;
+
+import burp.parammutator.metrics.HandlerMetrics;
+import burp.parammutator.util.GuardedRegex;
+import burp.parammutator.util.PathTrie;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.PatternSyntaxException;
+
+// Immutable lookup structure built once per ExtensionConfig.
+// Parameter rules (NORMAL/REGEX) are addressed by their position in config order, so
+// any combination of lookups can be merged back into the order the rules were defined in.
+public final class RuleIndex {
+
+    // per-name cache of REGEX rule hits; cleared when it grows past this size
+    private static final int REGEX_NAME_CACHE_LIMIT = 4096;
+
+    private static final int[] NONE = new int[0];
+
+    private final List<ParamMutatorRule> paramRules;
+    private final List<ParamMutatorRule> substituteRules;
+
+    // JSON and XML rules, addressed by selector into the request body
+    private final BodyRules jsonRules;
+    private final BodyRules xmlRules;
+
+    // SUBSTITUTE rules: placeholder name (pattern with or without the {$ $} wrapper) -> rules in config order
+    private final Map<String, ParamMutatorRule[]> substituteByName;
+
+    // NORMAL rules: exact parameter name -> rule indices (ascending)
+    private final Map<String, int[]> normalByName;
+
+    // REGEX rules: indices, plus one alternation over all of them used as a pre-filter
+    private final int[] regexRules;
+    private final GuardedRegex combinedRegex;
+    private final ConcurrentHashMap<String, int[]> regexNameCache = new ConcurrentHashMap<>();
+
+    // request shape -> per-position rules; belongs to this snapshot, so a config change starts empty
+    private final MatchPlanCache planCache = new MatchPlanCache();
+
+    // host filters, checked before any path work
+    private final HostScopes paramHosts;
+    private final HostScopes substituteHosts;
+
+    private final boolean unscopedSubstitute;
+    private final Set<String> substituteExactPaths = new HashSet<>();
+    private final PathTrie substituteGlobPaths = new PathTrie();
+    private final List<ParamMutatorRule> substituteRegexPaths = new ArrayList<>();
+    private final PathScope emptyScope = new PathScope(new BitSet());
+
+    // path buckets; rules sharing a path regex share one bucket, so each distinct regex runs once per path
+    private final BitSet unscoped = new BitSet();
+    private final Map<String, BitSet> exactPathBuckets;
+    // all GLOB filters, matched by one walk of the request path
+    private final PathTrie globPaths = new PathTrie();
+    private final ParamMutatorRule[] regexPathFilters;
+    private final BitSet[] regexPathBuckets;
+
+    RuleIndex(List<ParamMutatorRule> rules) {
+        List<ParamMutatorRule> params = new ArrayList<>();
+        List<ParamMutatorRule> substitutes = new ArrayList<>();
+        List<ParamMutatorRule> json = new ArrayList<>();
+        List<ParamMutatorRule> xml = new ArrayList<>();
+        for (ParamMutatorRule r : rules) {
+            if (r.getParamType() == ParamMutatorRule.ParamPatternType.SUBSTITUTE) {
+                substitutes.add(r);
+            } else if (r.getParamType() == ParamMutatorRule.ParamPatternType.JSON) {
+                json.add(r);
+            } else if (r.getParamType() == ParamMutatorRule.ParamPatternType.XML) {
+                xml.add(r);
+            } else {
+                params.add(r);
+            }
+        }
+        this.paramRules = Collections.unmodifiableList(params);
+        this.substituteRules = Collections.unmodifiableList(substitutes);
+        this.paramHosts = new HostScopes(params);
+        this.substituteHosts = new HostScopes(substitutes);
+        this.jsonRules = new BodyRules(json);
+        this.xmlRules = new BodyRules(xml);
+
+        boolean anyUnscoped = false;
+        Set<String> seenRegexPaths = new HashSet<>();
+        for (ParamMutatorRule r : substitutes) {
+            if (!r.isPathEnabled()) {
+                anyUnscoped = true;
+            } else if (r.getPathPattern() == null || r.getPathPattern().isEmpty()) {
+                // never matches
+            } else if (r.getPathMode() == PathMatchMode.REGEX) {
+                if (seenRegexPaths.add(r.getPathPattern())) {
+                    substituteRegexPaths.add(r);
+                }
+            } else if (r.getPathMode() == PathMatchMode.GLOB) {
+                substituteGlobPaths.add(r.getPathPattern(), 0);
+            } else {
+                substituteExactPaths.add(r.getPathPattern());
+            }
+        }
+        this.unscopedSubstitute = anyUnscoped;
+
+        Map<String, List<ParamMutatorRule>> byPlaceholder = new HashMap<>();
+        for (ParamMutatorRule r : substitutes) {
+            byPlaceholder.computeIfAbsent(placeholderName(r.getPattern()), k -> new ArrayList<>()).add(r);
+        }
+        Map<String, ParamMutatorRule[]> placeholders = new HashMap<>();
+        for (Map.Entry<String, List<ParamMutatorRule>> e : byPlaceholder.entrySet()) {
+            placeholders.put(e.getKey(), e.getValue().toArray(new ParamMutatorRule[0]));
+        }
+        this.substituteByName = placeholders;
+
+        Map<String, List<Integer>> byName = new HashMap<>();
+        List<Integer> regex = new ArrayList<>();
+        Map<String, BitSet> buckets = new HashMap<>();
+        Map<String, BitSet> regexBuckets = new LinkedHashMap<>();
+        Map<String, ParamMutatorRule> regexFilters = new HashMap<>();
+
+        for (int i = 0; i < params.size(); i++) {
+            ParamMutatorRule r = params.get(i);
+
+            if (r.getParamType() == ParamMutatorRule.ParamPatternType.REGEX) {
+                regex.add(i);
+            } else {
+                byName.computeIfAbsent(r.getPattern() == null ? "" : r.getPattern(), k -> new ArrayList<>()).add(i);
+            }
+
+            if (!r.isPathEnabled()) {
+                unscoped.set(i);
+            } else if (r.getPathPattern() == null || r.getPathPattern().isEmpty()) {
+                // enabled but empty path filter never matches (see ParamMutatorRule.matchesPath)
+            } else if (r.getPathMode() == PathMatchMode.REGEX) {
+                regexBuckets.computeIfAbsent(r.getPathPattern(), k -> new BitSet()).set(i);
+                regexFilters.putIfAbsent(r.getPathPattern(), r);
+            } else if (r.getPathMode() == PathMatchMode.GLOB) {
+                globPaths.add(r.getPathPattern(), i);
+            } else {
+                buckets.computeIfAbsent(r.getPathPattern(), k -> new BitSet()).set(i);
+            }
+        }
+
+        Map<String, int[]> names = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> e : byName.entrySet()) {
+            names.put(e.getKey(), toArray(e.getValue()));
+        }
+        this.normalByName = names;
+        this.regexRules = toArray(regex);
+        this.combinedRegex = combine(params, regexRules);
+        this.exactPathBuckets = buckets;
+        this.regexPathFilters = new ParamMutatorRule[regexBuckets.size()];
+        this.regexPathBuckets = new BitSet[regexBuckets.size()];
+        int b = 0;
+        for (Map.Entry<String, BitSet> e : regexBuckets.entrySet()) {
+            regexPathFilters[b] = regexFilters.get(e.getKey());
+            regexPathBuckets[b] = e.getValue();
+            b++;
+        }
+    }
+
+    public List<ParamMutatorRule> getParamRules() {
+        return paramRules;
+    }
+
+    public List<ParamMutatorRule> getSubstituteRules() {
+        return substituteRules;
+    }
+
+    public boolean hasSubstituteRules() {
+        return !substituteRules.isEmpty();
+    }
+
+    public BodyRules getJsonRules() {
+        return jsonRules;
+    }
+
+    public BodyRules getXmlRules() {
+        return xmlRules;
+    }
+
+    // First SUBSTITUTE rule (config order) serving this placeholder name for the host and path, or null.
+    public ParamMutatorRule findSubstituteRule(String name, Origin origin, String requestPath) {
+        ParamMutatorRule[] candidates = substituteByName.get(name);
+        if (candidates == null) {
+            return null;
+        }
+        for (ParamMutatorRule r : candidates) {
+            if (r.matchesHost(origin) && r.matchesPath(requestPath)) {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    // rule patterns may be stored as the raw name or as the full "{$name$}" placeholder
+    private static String placeholderName(String pattern) {
+        if (pattern == null) {
+            return "";
+        }
+        if (pattern.length() > 4 && pattern.startsWith("{$") && pattern.endsWith("$}")) {
+            return pattern.substring(2, pattern.length() - 2);
+        }
+        return pattern;
+    }
+
+    // true if at least one SUBSTITUTE rule's host and path filters accept this request
+    public boolean hasSubstituteRulesFor(Origin origin, String requestPath) {
+        if (!substituteHosts.isUnfiltered()) {
+            BitSet hostActive = substituteHosts.activeFor(origin);
+            if (hostActive.isEmpty()) {
+                return false;
+            }
+            if (hostActive.cardinality() < substituteRules.size()) {
+                for (int i = hostActive.nextSetBit(0); i >= 0; i = hostActive.nextSetBit(i + 1)) {
+                    if (substituteRules.get(i).matchesPath(requestPath)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+        if (unscopedSubstitute) {
+            return true;
+        }
+        if (substituteExactPaths.contains(requestPath == null ? "" : requestPath)) {
+            return true;
+        }
+        if (!substituteGlobPaths.isEmpty() && substituteGlobPaths.matches(requestPath)) {
+            return true;
+        }
+        for (ParamMutatorRule r : substituteRegexPaths) {
+            if (r.matchesPath(requestPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Resolve the host and path filters once for a request; the returned scope answers per-parameter lookups.
+    // Requests no parameter rule applies to get the shared empty scope; an unrelated host costs one
+    // cache lookup and never reaches the path filters.
+    public PathScope forRequest(Origin origin, String requestPath) {
+        BitSet hostActive = null;
+        if (!paramHosts.isUnfiltered()) {
+            hostActive = paramHosts.activeFor(origin);
+            if (hostActive.isEmpty()) {
+                return emptyScope;
+            }
+        }
+        PathScope scope = forPath(requestPath);
+        if (hostActive == null || scope.isEmpty()) {
+            return scope;
+        }
+        scope.active.and(hostActive);
+        return scope.isEmpty() ? emptyScope : scope;
+    }
+
+    private PathScope forPath(String requestPath) {
+        String p = requestPath == null ? "" : requestPath;
+
+        BitSet active = unscoped.isEmpty() ? null : (BitSet) unscoped.clone();
+        BitSet exact = exactPathBuckets.get(p);
+        if (exact != null) {
+            if (active == null) {
+                active = new BitSet();
+            }
+            active.or(exact);
+        }
+        if (!globPaths.isEmpty()) {
+            BitSet globHits = new BitSet();
+            if (globPaths.collect(p, globHits)) {
+                if (active == null) {
+                    active = globHits;
+                } else {
+                    active.or(globHits);
+                }
+            }
+        }
+        for (int b = 0; b < regexPathFilters.length; b++) {
+            if (regexPathFilters[b].matchesPath(p)) {
+                if (active == null) {
+                    active = new BitSet();
+                }
+                active.or(regexPathBuckets[b]);
+            }
+        }
+        return active == null ? emptyScope : new PathScope(active);
+    }
+
+    private int[] regexCandidates(String name) {
+        if (regexRules.length == 0) {
+            return NONE;
+        }
+        int[] cached = regexNameCache.get(name);
+        HandlerMetrics.getInstance().countRegexNameLookup(cached != null);
+        if (cached != null) {
+            return cached;
+        }
+
+        int[] hits = NONE;
+        boolean aborted = false;
+        // an aborted pre-filter proves nothing; the per-rule checks below carry their own budget
+        int prefilter = combinedRegex == null ? GuardedRegex.MATCH : combinedRegex.match(name);
+        if (prefilter != GuardedRegex.NO_MATCH) {
+            aborted = prefilter == GuardedRegex.ABORTED;
+            List<Integer> found = new ArrayList<>();
+            for (int i : regexRules) {
+                int result = paramRules.get(i).matchRegex(name);
+                if (result == GuardedRegex.MATCH) {
+                    found.add(i);
+                } else if (result == GuardedRegex.ABORTED) {
+                    aborted = true;
+                }
+            }
+            hits = toArray(found);
+        }
+
+        // an aborted match is not a proven miss: evaluate (and count) it again next time
+        if (aborted) {
+            return hits;
+        }
+        if (regexNameCache.size() >= REGEX_NAME_CACHE_LIMIT) {
+            regexNameCache.clear();
+        }
+        regexNameCache.put(name, hits);
+        return hits;
+    }
+
+    public final class PathScope {
+        private final BitSet active;
+
+        private PathScope(BitSet active) {
+            this.active = active;
+        }
+
+        public boolean isEmpty() {
+            return active.isEmpty();
+        }
+
+        // Rules for every parameter position of a request, looked up by request shape: the rules active
+        // for its origin and path plus its ordered parameter names and types. Requests that differ only in
+        // values (Scanner, Intruder) share one plan.
+        public MatchPlan planFor(String[] names, byte[] types) {
+            MatchPlanCache.Key key = new MatchPlanCache.Key(active, names, types);
+            MatchPlan plan = planCache.get(key);
+            if (plan != null) {
+                HandlerMetrics.getInstance().countPlanLookup(true);
+                return plan;
+            }
+            HandlerMetrics.getInstance().countPlanLookup(false);
+
+            List<List<ParamMutatorRule>> byPosition = new ArrayList<>(names.length);
+            Map<String, List<ParamMutatorRule>> seen = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i] == null ? "" : names[i];
+                List<ParamMutatorRule> rules = seen.get(name);
+                if (rules == null) {
+                    rules = List.copyOf(rulesFor(name));
+                    seen.put(name, rules);
+                }
+                byPosition.add(rules);
+            }
+            plan = new MatchPlan(byPosition);
+            planCache.put(key, plan);
+            return plan;
+        }
+
+        // Rules that apply to the given parameter name under this path, in config order.
+        public List<ParamMutatorRule> rulesFor(String paramName) {
+            if (active.isEmpty()) {
+                return List.of();
+            }
+            String name = paramName == null ? "" : paramName;
+            int[] normal = normalByName.getOrDefault(name, NONE);
+            int[] regex = regexCandidates(name);
+            if (normal.length == 0 && regex.length == 0) {
+                return List.of();
+            }
+
+            // merge two ascending index lists, keeping only rules active for this path
+            List<ParamMutatorRule> out = new ArrayList<>(normal.length + regex.length);
+            int a = 0;
+            int b = 0;
+            while (a < normal.length || b < regex.length) {
+                int idx;
+                if (b >= regex.length || (a < normal.length && normal[a] < regex[b])) {
+                    idx = normal[a++];
+                } else {
+                    idx = regex[b++];
+                }
+                if (active.get(idx)) {
+                    out.add(paramRules.get(idx));
+                }
+            }
+            return out;
+        }
+    }
+
+    private static GuardedRegex combine(List<ParamMutatorRule> params, int[] regexRules) {
+        if (regexRules.length == 0) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i : regexRules) {
+            String pat = params.get(i).getPattern();
+            if (pat == null || pat.isEmpty()) {
+                continue;
+            }
+            // numbered back-references would point at the wrong group once patterns are joined
+            if (pat.matches("(?s).*\\\\(\\d|k<).*")) {
+                return null;
+            }
+            if (sb.length() > 0) sb.append('|');
+            sb.append("(?:").append(pat).append(')');
+        }
+        if (sb.length() == 0) {
+            return new GuardedRegex("(?!)");
+        }
+        try {
+            return new GuardedRegex(sb.toString());
+        } catch (PatternSyntaxException ex) {
+            // e.g. duplicate named groups across rules: fall back to per-rule checks
+            return null;
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        if (list.isEmpty()) {
+            return NONE;
+        }
+        int[] out = new int[list.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = list.get(i);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,89 @@
+package burp.parammutator.model;
+
+import java.util.List;
+import java.util.Objects;
+
+// Plain value copy of one rule table row, taken on the EDT so compilation can run elsewhere.
+// Two equal specs always compile to equivalent rules, which is what lets RuleCompiler reuse them.
+public final class RuleSpec {
+
+    private final String pattern;
+    private final ParamMutatorRule.ParamPatternType paramType;
+    private final MutationMode mutationMode;
+    private final RandomType type;
+    private final Position position;
+    private final int length;
+    private final String text;
+    private final List<CodecOp> decodeChain;
+    private final List<CodecOp> encodeChain;
+    private final boolean pathEnabled;
+    private final String pathPattern;
+    private final PathMatchMode pathMode;
+    private final String hostPattern;
+
+    public RuleSpec(String pattern,
+                    ParamMutatorRule.ParamPatternType paramType,
+                    MutationMode mutationMode,
+                    RandomType type,
+                    Position position,
+                    int length,
+                    String text,
+                    List<CodecOp> decodeChain,
+                    List<CodecOp> encodeChain,
+                    boolean pathEnabled,
+                    String pathPattern,
+                    PathMatchMode pathMode,
+                    String hostPattern) {
+        this.pattern = pattern;
+        this.paramType = paramType;
+        this.mutationMode = mutationMode;
+        this.type = type;
+        this.position = position;
+        this.length = length;
+        this.text = text;
+        this.decodeChain = List.copyOf(decodeChain);
+        this.encodeChain = List.copyOf(encodeChain);
+        this.pathEnabled = pathEnabled;
+        this.pathPattern = pathPattern;
+        this.pathMode = pathMode;
+        this.hostPattern = hostPattern;
+    }
+
+    ParamMutatorRule compile() {
+        return new ParamMutatorRule(pattern, paramType, mutationMode, type, position, length, text,
+                decodeChain, encodeChain, pathEnabled, pathPattern, pathMode, hostPattern);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public String getPathPattern() {
+        return pathPattern;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RuleSpec s)) return false;
+        return length == s.length
+                && pathEnabled == s.pathEnabled
+                && pathMode == s.pathMode
+                && Objects.equals(pattern, s.pattern)
+                && paramType == s.paramType
+                && mutationMode == s.mutationMode
+                && type == s.type
+                && position == s.position
+                && Objects.equals(text, s.text)
+                && decodeChain.equals(s.decodeChain)
+                && encodeChain.equals(s.encodeChain)
+                && Objects.equals(pathPattern, s.pathPattern)
+                && Objects.equals(hostPattern, s.hostPattern);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pattern, paramType, mutationMode, type, position, length, text,
+                decodeChain, encodeChain, pathEnabled, pathPattern, pathMode, hostPattern);
+    }
+}
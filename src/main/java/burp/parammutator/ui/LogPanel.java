@@ -8,12 +8,21 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
 
 public class LogPanel extends JPanel {
+    // table updates are pushed to the JTable in batches, at most this often (~15 Hz)
+    private static final int REFRESH_MS = 66;
+
     private final Logger logger = Logger.getInstance();
     private final MontoyaApi api;
+    private final Timer refreshTimer;
 
     public LogPanel(MontoyaApi api) {
         this.api = api;
@@ -21,9 +30,9 @@ public class LogPanel extends JPanel {
         JTable table = new JTable(logger);
         table.setFillsViewportHeight(true);
 
-        table.setAutoCreateRowSorter(true);
+        // sorting reads every row; only the in-memory ring is small enough for that on the EDT
         TableRowSorter<Logger> sorter = new TableRowSorter<>(logger);
-        table.setRowSorter(sorter);
+        table.setRowSorter(logger.isDiskStoreEnabled() ? null : sorter);
 
         JScrollPane scrollPane = new JScrollPane(table);
         add(scrollPane, BorderLayout.CENTER);
@@ -48,6 +57,18 @@ public class LogPanel extends JPanel {
         JButton saveCsvBtn = new JButton("Save as CSV");
         controls.add(saveCsvBtn);
 
+        JCheckBox pauseCheck = new JCheckBox("Pause live updates", false);
+        controls.add(pauseCheck);
+
+        Path diskDir = Path.of(System.getProperty("java.io.tmpdir"),
+                "param-mutator-log-" + ProcessHandle.current().pid());
+        JCheckBox diskCheck = new JCheckBox("Store log on disk", logger.isDiskStoreEnabled());
+        diskCheck.setToolTipText("Keep every row in memory-mapped segment files under " + diskDir
+                + " instead of the in-memory size cap");
+        controls.add(diskCheck);
+        JLabel diskStatus = new JLabel();
+        controls.add(diskStatus);
+
         add(controls, BorderLayout.NORTH);
 
         levelSelect.addActionListener(e -> {
@@ -55,13 +76,48 @@ public class LogPanel extends JPanel {
             logger.setLogLevel(level);
         });
 
-        clearBtn.addActionListener(e -> logger.clear());
+        clearBtn.addActionListener(e -> {
+            logger.clear();
+            logger.refreshView();
+        });
+
+        diskCheck.addActionListener(e -> {
+            if (diskCheck.isSelected()) {
+                try {
+                    logger.enableDiskStore(diskDir);
+                } catch (IOException ex) {
+                    diskCheck.setSelected(false);
+                    JOptionPane.showMessageDialog(
+                        api.userInterface().swingUtils().suiteFrame(),
+                        "Cannot create disk log in " + diskDir + ": " + ex.getMessage()
+                    );
+                }
+            } else {
+                logger.disableDiskStore();
+            }
+            logger.refreshView();
+            table.setRowSorter(logger.isDiskStoreEnabled() ? null : sorter);
+        });
+
+        // entries keep being captured while paused; the view catches up on resume
+        refreshTimer = new Timer(REFRESH_MS, e -> {
+            if (!pauseCheck.isSelected()) {
+                logger.refreshView();
+            }
+            diskStatus.setText(logger.isDiskStoreEnabled()
+                    ? "Rows on disk: " + logger.getDiskRowCount()
+                    + (logger.getDroppedEntries() > 0 ? " (dropped: " + logger.getDroppedEntries() + ")" : "")
+                    : "");
+        });
+        refreshTimer.setCoalesce(true);
+        refreshTimer.start();
 
         applyMaxSizeBtn.addActionListener(e -> {
             try {
                 int mb = Integer.parseInt(maxSizeField.getText().trim());
                 if (mb > 0) {
                     logger.setMaxSizeBytes(mb * 1024L * 1024L);
+                    logger.refreshView();
                 } else {
                     JOptionPane.showMessageDialog(
                         api.userInterface().swingUtils().suiteFrame(),
@@ -86,32 +142,67 @@ public class LogPanel extends JPanel {
                 if (!filePath.toLowerCase().endsWith(".csv")) {
                     filePath += ".csv";
                 }
-                try (FileWriter csvWriter = new FileWriter(filePath)) {
-                    for (int col = 0; col < logger.getColumnCount(); col++) {
+                exportCsv(Path.of(filePath), saveCsvBtn);
+            }
+        });
+    }
+
+    // Streams rows straight from the log (disk store or ring) into the file on a background thread,
+    // so a large disk log is neither decoded on the EDT nor run through the table's page cache.
+    private void exportCsv(Path file, JButton saveCsvBtn) {
+        saveCsvBtn.setEnabled(false);
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws IOException {
+                long[] rows = {0};
+                try (Writer csvWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    int cols = logger.getColumnCount();
+                    for (int col = 0; col < cols; col++) {
                         csvWriter.append(logger.getColumnName(col));
-                        if (col < logger.getColumnCount() - 1) csvWriter.append(',');
+                        if (col < cols - 1) csvWriter.append(',');
                     }
                     csvWriter.append('\n');
-                    for (int row = 0; row < logger.getRowCount(); row++) {
-                        for (int col = 0; col < logger.getColumnCount(); col++) {
-                            Object val = logger.getValueAt(row, col);
-                            String cell = val == null ? "" : val.toString().replace("\"", "\\\"");
-                            csvWriter.append('"').append(cell).append('"');
-                            if (col < logger.getColumnCount() - 1) csvWriter.append(',');
+                    logger.forEachRow(entry -> {
+                        try {
+                            for (int col = 0; col < cols; col++) {
+                                Object val = Logger.cell(entry, col);
+                                String cell = val == null ? "" : val.toString().replace("\"", "\\\"");
+                                csvWriter.append('"').append(cell).append('"');
+                                if (col < cols - 1) csvWriter.append(',');
+                            }
+                            csvWriter.append('\n');
+                            rows[0]++;
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
                         }
-                        csvWriter.append('\n');
-                    }
+                    });
+                } catch (UncheckedIOException ex) {
+                    throw ex.getCause();
+                }
+                return rows[0];
+            }
+
+            @Override
+            protected void done() {
+                saveCsvBtn.setEnabled(true);
+                try {
+                    long rows = get();
                     JOptionPane.showMessageDialog(
                         api.userInterface().swingUtils().suiteFrame(),
-                        "Logs saved to CSV successfully."
+                        "Logs saved to CSV successfully (" + rows + " rows)."
                     );
-                } catch (IOException ex) {
+                } catch (Exception ex) {
+                    Throwable cause = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
                     JOptionPane.showMessageDialog(
                         api.userInterface().swingUtils().suiteFrame(),
-                        "Error saving CSV: " + ex.getMessage()
+                        "Error saving CSV: " + cause.getMessage()
                     );
                 }
             }
-        });
+        }.execute();
+    }
+
+    public void stopLiveUpdates() {
+        refreshTimer.stop();
     }
 }
@@ -0,0 +1,260 @@
+package burp.parammutator.ui;
+
+import burp.api.montoya.core.ToolType;
+import burp.parammutator.metrics.HandlerMetrics;
+import burp.parammutator.metrics.HandlerMetrics.ToolOutcome;
+import burp.parammutator.metrics.LatencyHistogram;
+import burp.parammutator.metrics.RegexMatchStats;
+import burp.parammutator.model.ExtensionConfig;
+import burp.parammutator.model.ParamMutatorRule;
+import burp.parammutator.util.GuardedRegex;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Per-stage handler latency (p50/p99/max), request/mutation counters, per-tool outcomes and
+// per-regex match timing.
+public class MetricsPanel extends JPanel {
+
+    private static final int REFRESH_MS = 1000;
+
+    private final HandlerMetrics metrics = HandlerMetrics.getInstance();
+    private final Supplier<ExtensionConfig> activeConfig;
+    private final StageTableModel model = new StageTableModel();
+    private final RegexTableModel regexModel = new RegexTableModel();
+    private final ToolTableModel toolModel = new ToolTableModel();
+    private final JLabel countersLabel = new JLabel();
+
+    public MetricsPanel(Supplier<ExtensionConfig> activeConfig) {
+        this.activeConfig = activeConfig;
+        setLayout(new BorderLayout());
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            metrics.reset();
+            for (RegexRow row : regexRows()) {
+                row.stats.reset();
+            }
+            refresh();
+        });
+        top.add(resetButton);
+        top.add(countersLabel);
+        add(top, BorderLayout.NORTH);
+
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+
+        JTable regexTable = new JTable(regexModel);
+        regexTable.setFillsViewportHeight(true);
+        JPanel regexPanel = new JPanel(new BorderLayout());
+        regexPanel.add(new JLabel(String.format(
+                "Regex rules of the active config, one match per distinct parameter name; repeated names reuse"
+                        + " the result (slow: a match over %d ms, or aborted after %,d steps, which is never reused)",
+                RegexMatchStats.SLOW_MATCH_NANOS / 1_000_000, GuardedRegex.MAX_STEPS)),
+                BorderLayout.NORTH);
+        regexPanel.add(new JScrollPane(regexTable), BorderLayout.CENTER);
+
+        JTable toolTable = new JTable(toolModel);
+        toolTable.setFillsViewportHeight(true);
+        JPanel toolPanel = new JPanel(new BorderLayout());
+        toolPanel.add(new JLabel("Requests per Burp tool (skipped = tool not selected in the Configuration tab)"),
+                BorderLayout.NORTH);
+        toolPanel.add(new JScrollPane(toolTable), BorderLayout.CENTER);
+
+        JSplitPane lower = new JSplitPane(JSplitPane.VERTICAL_SPLIT, toolPanel, regexPanel);
+        lower.setResizeWeight(0.5);
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(table), lower);
+        split.setResizeWeight(0.4);
+        add(split, BorderLayout.CENTER);
+
+        refresh();
+        Timer timer = new Timer(REFRESH_MS, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+        timer.start();
+    }
+
+    private void refresh() {
+        long hits = metrics.getPlanHits();
+        long lookups = hits + metrics.getPlanMisses();
+        long nameHits = metrics.getRegexNameHits();
+        long nameLookups = nameHits + metrics.getRegexNameMisses();
+        countersLabel.setText(String.format(
+                "Requests: %d   Passed through: %d   Mutated requests: %d   Mutated params: %d   Substituted placeholders: %d"
+                        + "   Codec failures: %d   Match plan cache: %d/%d hits (%.1f%%)"
+                        + "   Regex name cache: %d/%d hits",
+                metrics.getRequests(),
+                metrics.getPassedThrough(),
+                metrics.getMutatedRequests(),
+                metrics.getMutatedParams(),
+                metrics.getSubstitutions(),
+                metrics.getCodecFailures(),
+                hits,
+                lookups,
+                lookups == 0 ? 0.0 : 100.0 * hits / lookups,
+                nameHits,
+                nameLookups));
+        model.fireTableDataChanged();
+        toolModel.setRows(toolRows());
+        regexModel.setRows(regexRows());
+    }
+
+    // tools that have sent at least one request
+    private List<ToolType> toolRows() {
+        List<ToolType> rows = new ArrayList<>();
+        for (ToolType tool : ToolType.values()) {
+            for (ToolOutcome o : ToolOutcome.values()) {
+                if (metrics.getToolCount(tool, o) > 0) {
+                    rows.add(tool);
+                    break;
+                }
+            }
+        }
+        return rows;
+    }
+
+    // regexes that have run at least once; rules sharing a path regex are evaluated through one of them
+    private List<RegexRow> regexRows() {
+        List<RegexRow> rows = new ArrayList<>();
+        ExtensionConfig cfg = activeConfig.get();
+        if (cfg == null) {
+            return rows;
+        }
+        for (ParamMutatorRule r : cfg.getRules()) {
+            RegexMatchStats ps = r.getPatternStats();
+            if (ps != null && ps.getMatches() > 0) {
+                rows.add(new RegexRow(r.getPattern(), "Parameter", ps));
+            }
+            RegexMatchStats pp = r.getPathPatternStats();
+            if (pp != null && pp.getMatches() > 0) {
+                rows.add(new RegexRow(r.getPathPattern(), "Path", pp));
+            }
+        }
+        rows.sort(Comparator.comparing((RegexRow row) -> !row.stats.isSlow())
+                .thenComparing(row -> -row.stats.getMaxNanos()));
+        return rows;
+    }
+
+    private static String micros(double nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+
+    private final class StageTableModel extends AbstractTableModel {
+        private static final String[] COLS = {
+                "Stage",
+                "Count",
+                "p50 (\u00b5s)",
+                "p99 (\u00b5s)",
+                "Max (\u00b5s)",
+                "Mean (\u00b5s)"
+        };
+        private final HandlerMetrics.Stage[] stages = HandlerMetrics.Stage.values();
+
+        @Override public int getRowCount() { return stages.length; }
+        @Override public int getColumnCount() { return COLS.length; }
+        @Override public String getColumnName(int column) { return COLS[column]; }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            HandlerMetrics.Stage stage = stages[rowIndex];
+            LatencyHistogram h = metrics.histogram(stage);
+            return switch (columnIndex) {
+                case 0 -> stage.getLabel();
+                case 1 -> h.getCount();
+                case 2 -> micros(h.getPercentile(50));
+                case 3 -> micros(h.getPercentile(99));
+                case 4 -> micros(h.getMax());
+                case 5 -> micros(h.getMean());
+                default -> null;
+            };
+        }
+    }
+
+    private static final class RegexRow {
+        final String regex;
+        final String target;
+        final RegexMatchStats stats;
+
+        RegexRow(String regex, String target, RegexMatchStats stats) {
+            this.regex = regex;
+            this.target = target;
+            this.stats = stats;
+        }
+    }
+
+    private static final class RegexTableModel extends AbstractTableModel {
+        private static final String[] COLS = {
+                "Regex",
+                "Target",
+                "Matches",
+                "Aborted",
+                "Mean (\u00b5s)",
+                "Max (\u00b5s)",
+                "Slow"
+        };
+        private List<RegexRow> rows = List.of();
+
+        void setRows(List<RegexRow> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override public int getRowCount() { return rows.size(); }
+        @Override public int getColumnCount() { return COLS.length; }
+        @Override public String getColumnName(int column) { return COLS[column]; }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            RegexRow row = rows.get(rowIndex);
+            return switch (columnIndex) {
+                case 0 -> row.regex;
+                case 1 -> row.target;
+                case 2 -> row.stats.getMatches();
+                case 3 -> row.stats.getAborted();
+                case 4 -> micros(row.stats.getMeanNanos());
+                case 5 -> micros(row.stats.getMaxNanos());
+                case 6 -> row.stats.isSlow() ? "yes" : "";
+                default -> null;
+            };
+        }
+    }
+
+    private final class ToolTableModel extends AbstractTableModel {
+        private static final String[] COLS = {
+                "Tool",
+                "Skipped",
+                "Passed through",
+                "Mutated"
+        };
+        private List<ToolType> rows = List.of();
+
+        void setRows(List<ToolType> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override public int getRowCount() { return rows.size(); }
+        @Override public int getColumnCount() { return COLS.length; }
+        @Override public String getColumnName(int column) { return COLS[column]; }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            ToolType tool = rows.get(rowIndex);
+            return switch (columnIndex) {
+                case 0 -> tool.toolName();
+                case 1 -> metrics.getToolCount(tool, ToolOutcome.SKIPPED);
+                case 2 -> metrics.getToolCount(tool, ToolOutcome.PASSED);
+                case 3 -> metrics.getToolCount(tool, ToolOutcome.MUTATED);
+                default -> null;
+            };
+        }
+    }
+}
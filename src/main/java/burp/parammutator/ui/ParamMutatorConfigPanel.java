@@ -1,6 +1,6 @@
 package burp.parammutator.ui;
 
-import burp.parammutator.log.Logger;
+import burp.api.montoya.core.ToolType;
 import burp.parammutator.model.*;
 
 import javax.swing.*;
@@ -10,23 +10,35 @@ import javax.swing.plaf.basic.BasicTableHeaderUI;
 import javax.swing.table.*;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 public class ParamMutatorConfigPanel extends JPanel {
 
-    private static final int MAX_RULES = 100;
+    private static final int INITIAL_ROWS = 15;
 
     public interface ConfigListener {
         void onConfigChanged(ExtensionConfig config);
     }
 
     private final JCheckBox enabledCheck = new JCheckBox("Enable Param Mutator", false);
-
-    private final RuleTableModel model = new RuleTableModel(MAX_RULES);
+    private final JCheckBox inScopeOnlyCheck = new JCheckBox("Only in-scope requests", false);
+    // tools whose requests are mutated; all by default
+    private final EnumSet<ToolType> selectedTools = EnumSet.allOf(ToolType.class);
+    private final JButton toolsButton = new JButton();
+    private final JLabel activeConfigLabel = new JLabel();
+    private final JLabel compileStatusLabel = new JLabel();
+    private final JLabel ruleCountLabel = new JLabel();
+    // keeps the last published rules so Apply only recompiles rows that changed
+    private final RuleCompiler compiler = new RuleCompiler();
+
+    private final RuleTableModel model = new RuleTableModel(INITIAL_ROWS);
     private final JTable table = new JTable(model) {
         @Override
         protected JTableHeader createDefaultTableHeader() {
@@ -39,17 +51,42 @@ public class ParamMutatorConfigPanel extends JPanel {
 
         JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         topPanel.add(enabledCheck);
-
-        topPanel.add(new JLabel("Number of rules:"));
-        JSpinner ruleCountSpinner = new JSpinner(new SpinnerNumberModel(15, 1, MAX_RULES, 1));
-        topPanel.add(ruleCountSpinner);
+        topPanel.add(inScopeOnlyCheck);
+        topPanel.add(toolsButton);
+        installToolsMenu();
+
+        JSpinner addCountSpinner = new JSpinner(new SpinnerNumberModel(10, 1, 10_000, 10));
+        JButton addRows = new JButton("Add rows");
+        addRows.addActionListener(e -> {
+            int first = model.getRowCount();
+            model.addRows((Integer) addCountSpinner.getValue());
+            table.scrollRectToVisible(table.getCellRect(first, 0, true));
+        });
+        JButton removeSelected = new JButton("Remove selected");
+        removeSelected.addActionListener(e -> {
+            stopEditing();
+            int[] selected = table.getSelectedRows();
+            if (selected.length > 0) {
+                model.removeRows(selected);
+            }
+        });
+        JButton removeEmpty = new JButton("Remove empty");
+        removeEmpty.addActionListener(e -> {
+            stopEditing();
+            model.removeEmptyRows();
+        });
+        topPanel.add(addCountSpinner);
+        topPanel.add(addRows);
+        topPanel.add(removeSelected);
+        topPanel.add(removeEmpty);
+        topPanel.add(ruleCountLabel);
 
         JButton apply = new JButton("Apply");
         apply.addActionListener(e -> {
-            Logger logger = Logger.getInstance();
-
-            List<ParamMutatorRule> rules = new ArrayList<>();
-            for (int r = 0; r < model.getVisibleRowCount(); r++) {
+            // snapshot the rows here; regex and pipeline compilation runs on a worker thread
+            List<RuleSpec> specs = new ArrayList<>();
+            List<Integer> specRows = new ArrayList<>();
+            for (int r = 0; r < model.getRowCount(); r++) {
                 RuleRow row = model.rows.get(r);
 
                 String pat = row.paramPattern == null ? "" : row.paramPattern.trim();
@@ -69,7 +106,7 @@ public class ParamMutatorConfigPanel extends JPanel {
                 enc.add(row.enc4);
                 enc.removeIf(v -> v == null);
 
-                ParamMutatorRule rule = new ParamMutatorRule(
+                specs.add(new RuleSpec(
                         pat,
                         row.paramType,
                         row.mode,
@@ -81,25 +118,69 @@ public class ParamMutatorConfigPanel extends JPanel {
                         enc,
                         row.pathEnabled,
                         row.pathPattern,
-                        row.pathRegex
-                );
-                rules.add(rule);
+                        row.pathMode,
+                        row.hostPattern
+                ));
+                specRows.add(r);
             }
+            boolean httpEnabled = enabledCheck.isSelected();
+            boolean inScopeOnly = inScopeOnlyCheck.isSelected();
+            Set<ToolType> allowedTools = EnumSet.copyOf(selectedTools);
+
+            apply.setEnabled(false);
+            compileStatusLabel.setText("Compiling " + specs.size() + " rules...");
+            new SwingWorker<RuleCompiler.Result, Void>() {
+                @Override
+                protected RuleCompiler.Result doInBackground() {
+                    return compiler.compile(specs, httpEnabled, inScopeOnly, allowedTools);
+                }
+
+                @Override
+                protected void done() {
+                    apply.setEnabled(true);
+                    RuleCompiler.Result result;
+                    try {
+                        result = get();
+                    } catch (Exception ex) {
+                        Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                        compileStatusLabel.setText("Not applied: " + cause.getMessage());
+                        return;
+                    }
+
+                    Map<Integer, String> rowErrors = new HashMap<>();
+                    result.getErrors().forEach((i, msg) -> rowErrors.put(specRows.get(i), msg));
+                    model.setRowErrors(rowErrors);
 
-            listener.onConfigChanged(new ExtensionConfig(rules, enabledCheck.isSelected()));
+                    if (result.getConfig() == null) {
+                        // keep the running snapshot; nothing half-built is ever published
+                        compileStatusLabel.setText(String.format("Not applied: %d row(s) with errors",
+                                rowErrors.size()));
+                        return;
+                    }
+                    compileStatusLabel.setText(String.format("Compiled %d, reused %d in %.1f ms",
+                            result.getCompiled(), result.getReused(), result.getElapsedNanos() / 1_000_000.0));
+                    listener.onConfigChanged(result.getConfig());
+                }
+            }.execute();
         });
         topPanel.add(apply);
+        topPanel.add(activeConfigLabel);
+        topPanel.add(compileStatusLabel);
 
         add(topPanel, BorderLayout.NORTH);
 
         table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
         table.setRowHeight(24);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         installEditorsAndRenderers(table);
 
         JScrollPane sp = new JScrollPane(table);
         add(sp, BorderLayout.CENTER);
 
+        add(new RandomPoolPanel(), BorderLayout.SOUTH);
+
         GroupableTableHeader gh = (GroupableTableHeader) table.getTableHeader();
         setupGroupedHeader(gh);
         sp.setColumnHeaderView(gh);
@@ -110,12 +191,69 @@ public class ParamMutatorConfigPanel extends JPanel {
         model.addTableModelListener(e -> {
             if (e.getType() == TableModelEvent.UPDATE) {
                 table.repaint();
+            } else {
+                updateRuleCount();
             }
         });
+        updateRuleCount();
+    }
 
-        ruleCountSpinner.addChangeListener(e ->
-                model.setVisibleRowCount((Integer) ruleCountSpinner.getValue())
-        );
+    private void installToolsMenu() {
+        JPopupMenu menu = new JPopupMenu();
+        for (ToolType tool : ToolType.values()) {
+            JCheckBoxMenuItem item = new JCheckBoxMenuItem(tool.toolName(), selectedTools.contains(tool));
+            item.putClientProperty("CheckBoxMenuItem.doNotCloseOnMouseClick", true);
+            item.addActionListener(e -> {
+                if (item.isSelected()) {
+                    selectedTools.add(tool);
+                } else {
+                    selectedTools.remove(tool);
+                }
+                updateToolsButton();
+            });
+            menu.add(item);
+        }
+        toolsButton.addActionListener(e -> menu.show(toolsButton, 0, toolsButton.getHeight()));
+        toolsButton.setToolTipText("Burp tools whose requests are mutated (applied with Apply)");
+        updateToolsButton();
+    }
+
+    private void updateToolsButton() {
+        String text;
+        if (selectedTools.size() == ToolType.values().length) {
+            text = "all";
+        } else if (selectedTools.isEmpty()) {
+            text = "none";
+        } else {
+            StringBuilder sb = new StringBuilder();
+            for (ToolType t : selectedTools) {
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(t.toolName());
+            }
+            text = sb.toString();
+        }
+        toolsButton.setText("Tools: " + text);
+    }
+
+    private void updateRuleCount() {
+        ruleCountLabel.setText(model.getRowCount() + " rows");
+    }
+
+    private void stopEditing() {
+        if (table.isEditing()) {
+            table.getCellEditor().stopCellEditing();
+        }
+    }
+
+    // version of the snapshot the HTTP handler is currently running
+    public void showActiveConfig(ExtensionConfig config) {
+        String text = String.format("Active config: v%d, %d rules, %s", config.getVersion(),
+                config.getRules().size(), config.isHttpEnabled() ? "enabled" : "disabled");
+        if (SwingUtilities.isEventDispatchThread()) {
+            activeConfigLabel.setText(text);
+        } else {
+            SwingUtilities.invokeLater(() -> activeConfigLabel.setText(text));
+        }
     }
 
     @Override
@@ -155,9 +293,13 @@ public class ParamMutatorConfigPanel extends JPanel {
         // changed from Boolean "Is regex?" to enum Type
         PARAM_TYPE("Mode", ParamMutatorRule.ParamPatternType.class),
 
+        // empty = any host
+        HOST_PATTERN("Host", String.class),
+
         PATH_ENABLED("On?", Boolean.class),
         PATH_PATTERN("Path", String.class),
-        PATH_REGEX("Is regex?", Boolean.class),
+        // changed from Boolean "Is regex?" to EXACT/GLOB/REGEX
+        PATH_MODE("Match", PathMatchMode.class),
 
         MODE("Mode", MutationMode.class),
         TYPE("Random type", RandomType.class),
@@ -190,6 +332,7 @@ public class ParamMutatorConfigPanel extends JPanel {
         cm.getColumn(Col.MODE.ordinal()).setCellEditor(new DefaultCellEditor(new JComboBox<>(MutationMode.values())));
         cm.getColumn(Col.TYPE.ordinal()).setCellEditor(new DefaultCellEditor(new JComboBox<>(RandomType.values())));
         cm.getColumn(Col.POS.ordinal()).setCellEditor(new DefaultCellEditor(new JComboBox<>(Position.values())));
+        cm.getColumn(Col.PATH_MODE.ordinal()).setCellEditor(new DefaultCellEditor(new JComboBox<>(PathMatchMode.values())));
         cm.getColumn(Col.PARAM_TYPE.ordinal()).setCellEditor(
                 new DefaultCellEditor(new JComboBox<>(ParamMutatorRule.ParamPatternType.values()))
         );
@@ -226,9 +369,11 @@ public class ParamMutatorConfigPanel extends JPanel {
         setWidth(cm.getColumn(Col.PARAM_PATTERN.ordinal()), 180);
         setWidth(cm.getColumn(Col.PARAM_TYPE.ordinal()), 80);
 
+        setWidth(cm.getColumn(Col.HOST_PATTERN.ordinal()), 180);
+
         setWidth(cm.getColumn(Col.PATH_ENABLED.ordinal()), 55);
         setWidth(cm.getColumn(Col.PATH_PATTERN.ordinal()), 220);
-        setWidth(cm.getColumn(Col.PATH_REGEX.ordinal()), 55);
+        setWidth(cm.getColumn(Col.PATH_MODE.ordinal()), 75);
 
         setWidth(cm.getColumn(Col.MODE.ordinal()), 90);
         setWidth(cm.getColumn(Col.TYPE.ordinal()), 100);
@@ -246,6 +391,7 @@ public class ParamMutatorConfigPanel extends JPanel {
         table.setDefaultRenderer(MutationMode.class, new RuleAwareRenderer());
         table.setDefaultRenderer(RandomType.class, new RuleAwareRenderer());
         table.setDefaultRenderer(Position.class, new RuleAwareRenderer());
+        table.setDefaultRenderer(PathMatchMode.class, new RuleAwareRenderer());
         table.setDefaultRenderer(CodecOp.class, new RuleAwareRenderer());
         table.setDefaultRenderer(ParamMutatorRule.ParamPatternType.class, new RuleAwareRenderer());
     }
@@ -287,11 +433,15 @@ public class ParamMutatorConfigPanel extends JPanel {
         gParam.add(cm.getColumn(Col.PARAM_PATTERN.ordinal()));
         gParam.add(cm.getColumn(Col.PARAM_TYPE.ordinal()));
 
+        ColumnGroup gHost = new ColumnGroup("HOST");
+        gHost.setHeaderRenderer(groupRenderer);
+        gHost.add(cm.getColumn(Col.HOST_PATTERN.ordinal()));
+
         ColumnGroup gPath = new ColumnGroup("PATH");
         gPath.setHeaderRenderer(groupRenderer);
         gPath.add(cm.getColumn(Col.PATH_ENABLED.ordinal()));
         gPath.add(cm.getColumn(Col.PATH_PATTERN.ordinal()));
-        gPath.add(cm.getColumn(Col.PATH_REGEX.ordinal()));
+        gPath.add(cm.getColumn(Col.PATH_MODE.ordinal()));
 
         ColumnGroup gOptions = new ColumnGroup("OPTIONS");
         gOptions.setHeaderRenderer(groupRenderer);
@@ -313,6 +463,7 @@ public class ParamMutatorConfigPanel extends JPanel {
         gEnc.add(cm.getColumn(Col.ENC4.ordinal()));
 
         header.addColumnGroup(gParam);
+        header.addColumnGroup(gHost);
         header.addColumnGroup(gPath);
         header.addColumnGroup(gOptions);
         header.addColumnGroup(gEnc);
@@ -327,9 +478,11 @@ public class ParamMutatorConfigPanel extends JPanel {
         String paramPattern = "";
         ParamMutatorRule.ParamPatternType paramType = ParamMutatorRule.ParamPatternType.NORMAL;
 
+        String hostPattern = "";
+
         boolean pathEnabled = false;
         String pathPattern = "";
-        boolean pathRegex = false;
+        PathMatchMode pathMode = PathMatchMode.EXACT;
 
         MutationMode mode = MutationMode.RANDOM;
         RandomType randType = RandomType.NUMERIC;
@@ -348,26 +501,64 @@ public class ParamMutatorConfigPanel extends JPanel {
         CodecOp enc4 = CodecOp.NO_OP;
     }
 
+    // Grows on demand; JTable only asks for the cells it paints, so thousands of rows stay cheap.
     private static final class RuleTableModel extends AbstractTableModel {
-        private final int maxRows;
-        private int visibleRows = 15;
         private final List<RuleRow> rows = new ArrayList<>();
+        // row -> compile error from the last Apply
+        private Map<Integer, String> rowErrors = Map.of();
+
+        RuleTableModel(int initialRows) {
+            for (int i = 0; i < initialRows; i++) rows.add(new RuleRow());
+        }
+
+        void addRows(int n) {
+            if (n <= 0) return;
+            int first = rows.size();
+            for (int i = 0; i < n; i++) rows.add(new RuleRow());
+            fireTableRowsInserted(first, rows.size() - 1);
+        }
+
+        void removeRows(int[] rowIndexes) {
+            BitSet drop = new BitSet(rows.size());
+            for (int r : rowIndexes) {
+                if (r >= 0 && r < rows.size()) drop.set(r);
+            }
+            retain(drop);
+        }
 
-        RuleTableModel(int maxRows) {
-            this.maxRows = maxRows;
-            for (int i = 0; i < maxRows; i++) rows.add(new RuleRow());
+        void removeEmptyRows() {
+            BitSet drop = new BitSet(rows.size());
+            for (int r = 0; r < rows.size(); r++) {
+                String pat = rows.get(r).paramPattern;
+                if (pat == null || pat.trim().isEmpty()) drop.set(r);
+            }
+            retain(drop);
+        }
+
+        // one pass and one event, however many rows go
+        private void retain(BitSet drop) {
+            if (drop.isEmpty()) return;
+            List<RuleRow> kept = new ArrayList<>(rows.size() - drop.cardinality());
+            for (int r = 0; r < rows.size(); r++) {
+                if (!drop.get(r)) kept.add(rows.get(r));
+            }
+            rows.clear();
+            rows.addAll(kept);
+            // errors are keyed by row index, which just shifted
+            rowErrors = Map.of();
+            fireTableDataChanged();
         }
 
-        void setVisibleRowCount(int n) {
-            visibleRows = Math.max(1, Math.min(maxRows, n));
+        void setRowErrors(Map<Integer, String> errors) {
+            rowErrors = new HashMap<>(errors);
             fireTableDataChanged();
         }
 
-        int getVisibleRowCount() {
-            return visibleRows;
+        String getRowError(int row) {
+            return rowErrors.get(row);
         }
 
-        @Override public int getRowCount() { return visibleRows; }
+        @Override public int getRowCount() { return rows.size(); }
         @Override public int getColumnCount() { return Col.values().length; }
         @Override public String getColumnName(int column) { return Col.values()[column].header; }
         @Override public Class<?> getColumnClass(int columnIndex) { return Col.values()[columnIndex].cls; }
@@ -379,8 +570,8 @@ public class ParamMutatorConfigPanel extends JPanel {
 
             if (c == Col.PARAM_PATTERN || c == Col.PARAM_TYPE || c == Col.MODE) return true;
 
-            if (c == Col.PATH_ENABLED) return true;
-            if (c == Col.PATH_PATTERN || c == Col.PATH_REGEX) return r.pathEnabled;
+            if (c == Col.HOST_PATTERN || c == Col.PATH_ENABLED) return true;
+            if (c == Col.PATH_PATTERN || c == Col.PATH_MODE) return r.pathEnabled;
 
             if (c == Col.TYPE) return r.mode == MutationMode.RANDOM;
             if (c == Col.LEN) {
@@ -411,9 +602,11 @@ public class ParamMutatorConfigPanel extends JPanel {
                 case PARAM_PATTERN -> r.paramPattern;
                 case PARAM_TYPE -> r.paramType;
 
+                case HOST_PATTERN -> r.hostPattern;
+
                 case PATH_ENABLED -> r.pathEnabled;
                 case PATH_PATTERN -> r.pathPattern;
-                case PATH_REGEX -> r.pathRegex;
+                case PATH_MODE -> r.pathMode;
 
                 case MODE -> r.mode;
                 case TYPE -> r.randType;
@@ -443,9 +636,11 @@ public class ParamMutatorConfigPanel extends JPanel {
                     case PARAM_PATTERN -> r.paramPattern = aValue == null ? "" : aValue.toString();
                     case PARAM_TYPE -> r.paramType = (ParamMutatorRule.ParamPatternType) aValue;
 
+                    case HOST_PATTERN -> r.hostPattern = aValue == null ? "" : aValue.toString();
+
                     case PATH_ENABLED -> r.pathEnabled = aValue instanceof Boolean && (Boolean) aValue;
                     case PATH_PATTERN -> r.pathPattern = aValue == null ? "" : aValue.toString();
-                    case PATH_REGEX -> r.pathRegex = aValue instanceof Boolean && (Boolean) aValue;
+                    case PATH_MODE -> r.pathMode = (PathMatchMode) aValue;
 
                     case MODE -> {
                         r.mode = (MutationMode) aValue;
@@ -477,6 +672,10 @@ public class ParamMutatorConfigPanel extends JPanel {
                 // ignore
             }
 
+            // the error belongs to the old value; the next Apply re-checks the row
+            if (rowErrors.containsKey(rowIndex)) {
+                rowErrors.remove(rowIndex);
+            }
             fireTableRowsUpdated(rowIndex, rowIndex);
         }
     }
@@ -484,6 +683,8 @@ public class ParamMutatorConfigPanel extends JPanel {
     // -------------------- Renderers/editors --------------------
 
     private static final class RuleAwareRenderer extends DefaultTableCellRenderer {
+        private static final Color ERROR_BACKGROUND = new Color(255, 205, 205);
+
         @Override
         public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
                                                        boolean hasFocus, int row, int column) {
@@ -495,7 +696,7 @@ public class ParamMutatorConfigPanel extends JPanel {
             Col colEnum = Col.values()[table.convertColumnIndexToModel(column)];
 
             boolean enabled = true;
-            if (colEnum == Col.PATH_PATTERN || colEnum == Col.PATH_REGEX) enabled = rr.pathEnabled;
+            if (colEnum == Col.PATH_PATTERN || colEnum == Col.PATH_MODE) enabled = rr.pathEnabled;
             if (colEnum == Col.TYPE) enabled = rr.mode == MutationMode.RANDOM;
             if (colEnum == Col.LEN) {
                 enabled = rr.mode == MutationMode.RANDOM && rr.randType != RandomType.UUID;
@@ -509,6 +710,12 @@ public class ParamMutatorConfigPanel extends JPanel {
             }
 
             c.setEnabled(enabled);
+
+            String error = m.getRowError(row);
+            if (!isSelected) {
+                c.setBackground(error != null ? ERROR_BACKGROUND : table.getBackground());
+            }
+            setToolTipText(error);
             return c;
         }
     }
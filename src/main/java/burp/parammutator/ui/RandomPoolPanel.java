@@ -0,0 +1,78 @@
+package burp.parammutator.ui;
+
+import burp.parammutator.util.RandomPool;
+import burp.parammutator.util.RandomPools;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Live view of the pre-generated random value pools (depth and refill stats).
+public class RandomPoolPanel extends JPanel {
+
+    private static final int REFRESH_MS = 1000;
+
+    private final PoolTableModel model = new PoolTableModel();
+
+    public RandomPoolPanel() {
+        setLayout(new BorderLayout());
+        setBorder(BorderFactory.createTitledBorder("Random value pools"));
+
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        JScrollPane sp = new JScrollPane(table);
+        sp.setPreferredSize(new Dimension(600, 110));
+        add(sp, BorderLayout.CENTER);
+
+        Timer timer = new Timer(REFRESH_MS, e -> {
+            if (isShowing()) {
+                model.refresh();
+            }
+        });
+        timer.start();
+    }
+
+    private static final class PoolTableModel extends AbstractTableModel {
+        private static final String[] COLS = {
+                "Type",
+                "Length",
+                "Depth",
+                "Capacity",
+                "Served",
+                "Refilled",
+                "Inline (pool empty)"
+        };
+
+        private List<RandomPool> pools = new ArrayList<>();
+
+        void refresh() {
+            pools = RandomPools.snapshot();
+            pools.sort((a, b) -> {
+                int c = a.getType().compareTo(b.getType());
+                return c != 0 ? c : Integer.compare(a.getLength(), b.getLength());
+            });
+            fireTableDataChanged();
+        }
+
+        @Override public int getRowCount() { return pools.size(); }
+        @Override public int getColumnCount() { return COLS.length; }
+        @Override public String getColumnName(int column) { return COLS[column]; }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            RandomPool p = pools.get(rowIndex);
+            return switch (columnIndex) {
+                case 0 -> p.getType();
+                case 1 -> p.getLength() == 0 ? "-" : String.valueOf(p.getLength());
+                case 2 -> p.getDepth();
+                case 3 -> p.getCapacity();
+                case 4 -> p.getServed();
+                case 5 -> p.getRefilled();
+                case 6 -> p.getInline();
+                default -> null;
+            };
+        }
+    }
+}
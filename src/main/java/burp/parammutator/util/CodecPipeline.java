@@ -0,0 +1,201 @@
+package burp.parammutator.util;
+
+import burp.parammutator.metrics.HandlerMetrics;
+import burp.parammutator.model.CodecOp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+// A decode or encode chain compiled once per rule.
+// Compilation drops ops that have no effect in the chain's direction and NO_OP. A run of consecutive
+// case changes applies only its last op to ASCII values; other values go through every op, since
+// e.g. "ß" upper- then lowercased is "ss". Adjacent Base64 steps run as one byte-level stage, so the
+// value is converted String<->byte[] once per run instead of once per op.
+// Like CodecUtil's chain helpers, a failing step leaves the value as it was and the chain goes on;
+// unlike them, the failure is counted in HandlerMetrics (shown in the Metrics tab).
+public final class CodecPipeline {
+
+    public static final CodecPipeline IDENTITY = new CodecPipeline(List.of(), new Stage[0]);
+
+    private interface Stage {
+        String apply(String in);
+    }
+
+    private interface ByteStep {
+        byte[] apply(byte[] in);
+    }
+
+    private final List<CodecOp> ops;
+    private final Stage[] stages;
+
+    private CodecPipeline(List<CodecOp> ops, Stage[] stages) {
+        this.ops = ops;
+        this.stages = stages;
+    }
+
+    public static CodecPipeline compileDecode(List<CodecOp> chain) {
+        return compile(chain, true);
+    }
+
+    public static CodecPipeline compileEncode(List<CodecOp> chain) {
+        return compile(chain, false);
+    }
+
+    private static CodecPipeline compile(List<CodecOp> chain, boolean decode) {
+        if (chain == null || chain.isEmpty()) {
+            return IDENTITY;
+        }
+
+        List<CodecOp> optimized = new ArrayList<>(chain.size());
+        for (CodecOp op : chain) {
+            if (op == null || op == CodecOp.NO_OP || !appliesTo(op, decode)) {
+                continue;
+            }
+            optimized.add(op);
+        }
+
+        if (optimized.isEmpty()) {
+            return IDENTITY;
+        }
+
+        List<Stage> stages = new ArrayList<>();
+        List<ByteStep> byteRun = new ArrayList<>();
+        for (int i = 0; i < optimized.size(); i++) {
+            CodecOp op = optimized.get(i);
+            ByteStep step = byteStep(op);
+            if (step != null) {
+                byteRun.add(step);
+                continue;
+            }
+            flushByteRun(byteRun, stages);
+            int end = i + 1;
+            while (isCaseOp(op) && end < optimized.size() && isCaseOp(optimized.get(end))) {
+                end++;
+            }
+            if (end - i > 1) {
+                stages.add(caseRunStage(optimized.subList(i, end)));
+                i = end - 1;
+            } else {
+                stages.add(stringStage(op));
+            }
+        }
+        flushByteRun(byteRun, stages);
+
+        return new CodecPipeline(Collections.unmodifiableList(optimized), stages.toArray(new Stage[0]));
+    }
+
+    public String apply(String value) {
+        String v = value;
+        for (Stage stage : stages) {
+            v = stage.apply(v);
+        }
+        return v;
+    }
+
+    public boolean isIdentity() {
+        return stages.length == 0;
+    }
+
+    // ops left after compilation, in execution order
+    public List<CodecOp> getOps() {
+        return ops;
+    }
+
+    // same op sets CodecUtil.applyDecodeChain / applyEncodeChain act on; everything else was a no-op there
+    private static boolean appliesTo(CodecOp op, boolean decode) {
+        return switch (op) {
+            case URL_DECODE, BASE64_DECODE, UNICODE_DECODE -> decode;
+            case URL_ENCODE, BASE64_ENCODE, UNICODE_ENCODE -> !decode;
+            case UPPERCASE, LOWERCASE -> true;
+            case NO_OP -> false;
+        };
+    }
+
+    private static boolean isCaseOp(CodecOp op) {
+        return op == CodecOp.UPPERCASE || op == CodecOp.LOWERCASE;
+    }
+
+    private static ByteStep byteStep(CodecOp op) {
+        return switch (op) {
+            case BASE64_ENCODE -> in -> Base64.getEncoder().encode(in);
+            case BASE64_DECODE -> in -> {
+                try {
+                    return Base64.getDecoder().decode(in);
+                } catch (IllegalArgumentException ex) {
+                    // not Base64: keep the bytes, as CodecUtil.applyDecodeChain did
+                    HandlerMetrics.getInstance().countCodecFailure();
+                    return in;
+                }
+            };
+            default -> null;
+        };
+    }
+
+    private static Stage stringStage(CodecOp op) {
+        Stage stage = switch (op) {
+            case URL_DECODE -> CodecUtil::urlDecode;
+            case URL_ENCODE -> CodecUtil::urlEncode;
+            case UNICODE_DECODE -> CodecUtil::unicodeDecode;
+            case UNICODE_ENCODE -> CodecUtil::unicodeEncode;
+            case UPPERCASE -> String::toUpperCase;
+            case LOWERCASE -> String::toLowerCase;
+            default -> in -> in;
+        };
+        return in -> {
+            try {
+                return stage.apply(in);
+            } catch (RuntimeException ex) {
+                // e.g. a malformed %-escape: keep the value, as CodecUtil's chain helpers did
+                HandlerMetrics.getInstance().countCodecFailure();
+                return in;
+            }
+        };
+    }
+
+    // UPPERCASE, LOWERCASE -> LOWERCASE holds for ASCII only; anything else runs the whole sequence
+    private static Stage caseRunStage(List<CodecOp> run) {
+        Stage last = stringStage(run.get(run.size() - 1));
+        Stage[] all = new Stage[run.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = stringStage(run.get(i));
+        }
+        return in -> {
+            if (isAscii(in)) {
+                return last.apply(in);
+            }
+            String v = in;
+            for (Stage s : all) {
+                v = s.apply(v);
+            }
+            return v;
+        };
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // one String->byte[] conversion in, one byte[]->String conversion out, however many Base64 steps in between
+    private static void flushByteRun(List<ByteStep> run, List<Stage> stages) {
+        if (run.isEmpty()) {
+            return;
+        }
+        ByteStep[] steps = run.toArray(new ByteStep[0]);
+        run.clear();
+        stages.add(in -> {
+            byte[] buf = in.getBytes(StandardCharsets.UTF_8);
+            for (ByteStep step : steps) {
+                buf = step.apply(buf);
+            }
+            return new String(buf, StandardCharsets.UTF_8);
+        });
+    }
+}
@@ -56,23 +56,23 @@ public final class CodecUtil {
         return v;
     }
 
-    private static String urlDecode(String s) {
+    static String urlDecode(String s) {
         return URLDecoder.decode(s, StandardCharsets.UTF_8);
     }
 
-    private static String urlEncode(String s) {
+    static String urlEncode(String s) {
         return URLEncoder.encode(s, StandardCharsets.UTF_8);
     }
 
-    private static String base64Decode(String s) {
+    static String base64Decode(String s) {
         return new String(Base64.getDecoder().decode(s), StandardCharsets.UTF_8);
     }
 
-    private static String base64Encode(String s) {
+    static String base64Encode(String s) {
         return Base64.getEncoder().encodeToString(s.getBytes(StandardCharsets.UTF_8));
     }
 
-    private static String unicodeDecode(String s) {
+    static String unicodeDecode(String s) {
         StringBuilder out = new StringBuilder(s.length());
         for (int i = 0; i < s.length();) {
             char c = s.charAt(i);
@@ -92,7 +92,7 @@ public final class CodecUtil {
         return out.toString();
     }
 
-    private static String unicodeEncode(String s) {
+    static String unicodeEncode(String s) {
         StringBuilder out = new StringBuilder(s.length() * 6);
         for (char c : s.toCharArray()) {
             if (c < 0x30 || (c > 0x39 && c < 0x41) || (c > 0x5A && c < 0x61) || c > 0x7e ) {
@@ -0,0 +1,93 @@
+package burp.parammutator.util;
+
+import burp.parammutator.metrics.RegexMatchStats;
+
+import java.util.regex.Pattern;
+
+// User regex with a per-match step budget. java.util.regex backtracks, so a pattern like (a+)+b
+// against a long name can run for seconds on a Burp request thread. The input is wrapped in a
+// CharSequence that counts character reads and aborts the match once the budget is spent.
+// A linear engine would avoid the budget but drops back-references and lookaround, which existing
+// rules may rely on.
+public final class GuardedRegex {
+
+    public static final int MATCH = 1;
+    public static final int NO_MATCH = 0;
+    public static final int ABORTED = -1;
+
+    // character reads per match; a linear pattern needs a small multiple of the input length
+    public static final int MAX_STEPS = 1_000_000;
+
+    private final Pattern pattern;
+    private final RegexMatchStats stats = new RegexMatchStats();
+
+    public GuardedRegex(String regex) {
+        this.pattern = Pattern.compile(regex);
+    }
+
+    public String pattern() {
+        return pattern.pattern();
+    }
+
+    public RegexMatchStats getStats() {
+        return stats;
+    }
+
+    // aborted matches count as no match
+    public boolean matches(CharSequence input) {
+        return match(input) == MATCH;
+    }
+
+    public int match(CharSequence input) {
+        long t0 = System.nanoTime();
+        int result;
+        try {
+            result = pattern.matcher(new BudgetedSequence(input, MAX_STEPS)).matches() ? MATCH : NO_MATCH;
+        } catch (BudgetExceeded ex) {
+            result = ABORTED;
+        }
+        stats.record(System.nanoTime() - t0, result == ABORTED);
+        return result;
+    }
+
+    private static final class BudgetExceeded extends RuntimeException {
+        private static final BudgetExceeded INSTANCE = new BudgetExceeded();
+
+        private BudgetExceeded() {
+            super("regex step budget exceeded", null, false, false);
+        }
+    }
+
+    private static final class BudgetedSequence implements CharSequence {
+        private final CharSequence input;
+        private int remaining;
+
+        BudgetedSequence(CharSequence input, int budget) {
+            this.input = input;
+            this.remaining = budget;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--remaining < 0) {
+                throw BudgetExceeded.INSTANCE;
+            }
+            return input.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return input.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return input.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return input.toString();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package burp.parammutator.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// JSON Pointer (RFC 6901) selectors as used by JSON rules, extended with '*' (any one member or
+// element) and '**' (zero or more levels), e.g. /items/*/email or /**/password.
+public final class JsonPointers {
+
+    private JsonPointers() { }
+
+    // Splits a pointer into unescaped segments ("" selects the whole document).
+    public static String[] parse(String pointer) {
+        String p = pointer == null ? "" : pointer.trim();
+        if (p.isEmpty()) {
+            return new String[0];
+        }
+        if (p.charAt(0) != '/') {
+            throw new IllegalArgumentException("Invalid JSON pointer '" + p + "': must start with '/'");
+        }
+        List<String> segments = new ArrayList<>();
+        int start = 1;
+        while (true) {
+            int slash = p.indexOf('/', start);
+            String raw = slash < 0 ? p.substring(start) : p.substring(start, slash);
+            segments.add(unescape(raw, p));
+            if (slash < 0) {
+                break;
+            }
+            start = slash + 1;
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    // Appends one segment of a concrete pointer, escaping '~' and '/'.
+    public static void appendSegment(StringBuilder sb, String segment) {
+        sb.append('/');
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '~') {
+                sb.append("~0");
+            } else if (c == '/') {
+                sb.append("~1");
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String raw, String pointer) {
+        if (raw.indexOf('~') < 0) {
+            return raw;
+        }
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '~') {
+                sb.append(c);
+                continue;
+            }
+            char next = i + 1 < raw.length() ? raw.charAt(i + 1) : ' ';
+            if (next == '0') {
+                sb.append('~');
+            } else if (next == '1') {
+                sb.append('/');
+            } else {
+                throw new IllegalArgumentException("Invalid JSON pointer '" + pointer + "': '~' must be followed by 0 or 1");
+            }
+            i++;
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,174 @@
+package burp.parammutator.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Glob path filters of many rules merged into one trie over '/'-separated segments.
+// A segment is a literal, '*' (any one segment), '**' (zero or more segments) or a
+// segment glob such as '*.json' or 'v?' ('*' and '?' never cross a '/').
+// One walk of a request path collects the ids of every filter it matches; the query string is ignored.
+public final class PathTrie {
+
+    private static final class Node {
+        final Map<String, Node> literal = new HashMap<>();
+        Node anySegment;
+        final List<String> segmentGlobs = new ArrayList<>();
+        final List<Node> segmentGlobNodes = new ArrayList<>();
+        // '**' child; a deep node also consumes any segment and stays put
+        Node deep;
+        boolean isDeep;
+        final BitSet ids = new BitSet();
+    }
+
+    private final Node root = new Node();
+    private boolean empty = true;
+
+    public void add(String glob, int id) {
+        Node n = root;
+        List<String> segments = segments(glob == null ? "" : glob, false);
+        for (String seg : segments) {
+            if (seg.equals("**")) {
+                if (n.deep == null) {
+                    n.deep = new Node();
+                    n.deep.isDeep = true;
+                }
+                n = n.deep;
+            } else if (seg.equals("*")) {
+                if (n.anySegment == null) {
+                    n.anySegment = new Node();
+                }
+                n = n.anySegment;
+            } else if (seg.indexOf('*') >= 0 || seg.indexOf('?') >= 0) {
+                int i = n.segmentGlobs.indexOf(seg);
+                if (i < 0) {
+                    n.segmentGlobs.add(seg);
+                    n.segmentGlobNodes.add(new Node());
+                    i = n.segmentGlobs.size() - 1;
+                }
+                n = n.segmentGlobNodes.get(i);
+            } else {
+                n = n.literal.computeIfAbsent(seg, k -> new Node());
+            }
+        }
+        n.ids.set(id);
+        empty = false;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public boolean matches(String path) {
+        BitSet hits = new BitSet();
+        collect(path, hits);
+        return !hits.isEmpty();
+    }
+
+    // ORs the ids of all matching filters into 'into'; returns true if any matched
+    public boolean collect(String path, BitSet into) {
+        if (empty) {
+            return false;
+        }
+        List<Node> current = new ArrayList<>(4);
+        List<Node> next = new ArrayList<>(4);
+        addWithClosure(current, root);
+
+        for (String seg : segments(path == null ? "" : path, true)) {
+            next.clear();
+            for (int i = 0; i < current.size(); i++) {
+                Node n = current.get(i);
+                if (n.isDeep) {
+                    addWithClosure(next, n);
+                }
+                Node lit = n.literal.get(seg);
+                if (lit != null) {
+                    addWithClosure(next, lit);
+                }
+                if (n.anySegment != null) {
+                    addWithClosure(next, n.anySegment);
+                }
+                for (int g = 0; g < n.segmentGlobs.size(); g++) {
+                    if (segmentMatches(n.segmentGlobs.get(g), seg)) {
+                        addWithClosure(next, n.segmentGlobNodes.get(g));
+                    }
+                }
+            }
+            if (next.isEmpty()) {
+                return false;
+            }
+            List<Node> t = current;
+            current = next;
+            next = t;
+        }
+
+        boolean any = false;
+        for (Node n : current) {
+            if (!n.ids.isEmpty()) {
+                into.or(n.ids);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    private static void addWithClosure(List<Node> states, Node n) {
+        while (n != null) {
+            // identity check; state lists stay tiny
+            for (Node s : states) {
+                if (s == n) {
+                    return;
+                }
+            }
+            states.add(n);
+            n = n.deep;
+        }
+    }
+
+    private static List<String> segments(String path, boolean dropQuery) {
+        int end = path.length();
+        if (dropQuery) {
+            int q = path.indexOf('?');
+            if (q >= 0) {
+                end = q;
+            }
+        }
+        List<String> out = new ArrayList<>(8);
+        int start = 0;
+        for (int i = 0; i <= end; i++) {
+            if (i == end || path.charAt(i) == '/') {
+                out.add(path.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return out;
+    }
+
+    // '*' = any run of characters, '?' = one character, within a single segment
+    static boolean segmentMatches(String glob, String seg) {
+        int g = 0;
+        int s = 0;
+        int starG = -1;
+        int starS = 0;
+        while (s < seg.length()) {
+            if (g < glob.length() && (glob.charAt(g) == '?' || glob.charAt(g) == seg.charAt(s))) {
+                g++;
+                s++;
+            } else if (g < glob.length() && glob.charAt(g) == '*') {
+                starG = g++;
+                starS = s;
+            } else if (starG >= 0) {
+                g = starG + 1;
+                s = ++starS;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == glob.length();
+    }
+}
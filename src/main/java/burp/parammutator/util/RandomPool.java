@@ -0,0 +1,155 @@
+package burp.parammutator.util;
+
+import burp.parammutator.model.RandomType;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pre-generated random values for one (type, length) pair.
+// Request threads take values from a lock-free ring; RandomPools' background thread tops it up.
+// When the ring is empty the value is generated inline, so callers never wait.
+public final class RandomPool {
+
+    private final RandomType type;
+    private final int length;
+    private final Ring ring;
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder inline = new LongAdder();
+    private final LongAdder refilled = new LongAdder();
+
+    RandomPool(RandomType type, int length, int capacity) {
+        this.type = type;
+        this.length = length;
+        this.ring = new Ring(capacity);
+    }
+
+    public String next() {
+        String v = ring.poll();
+        if (v != null) {
+            served.increment();
+            if (ring.size() < ring.capacity() / 2) {
+                RandomPools.wakeRefiller();
+            }
+            return v;
+        }
+        inline.increment();
+        RandomPools.wakeRefiller();
+        return RandomUtil.randomString(type, length);
+    }
+
+    // Generates values until the ring is full; returns how many were added.
+    int refill() {
+        int added = 0;
+        while (ring.size() < ring.capacity()) {
+            if (!ring.offer(RandomUtil.randomString(type, length))) {
+                break;
+            }
+            added++;
+        }
+        refilled.add(added);
+        return added;
+    }
+
+    boolean isLow() {
+        return ring.size() < ring.capacity() / 2;
+    }
+
+    public RandomType getType() {
+        return type;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getDepth() {
+        return ring.size();
+    }
+
+    public int getCapacity() {
+        return ring.capacity();
+    }
+
+    public long getServed() {
+        return served.sum();
+    }
+
+    public long getInline() {
+        return inline.sum();
+    }
+
+    public long getRefilled() {
+        return refilled.sum();
+    }
+
+    // Bounded multi-producer/multi-consumer ring (per-slot sequence numbers, no locks).
+    private static final class Ring {
+        private final AtomicReferenceArray<String> slots;
+        private final AtomicLongArray sequence;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.slots = new AtomicReferenceArray<>(size);
+            this.sequence = new AtomicLongArray(size);
+            this.mask = size - 1;
+            for (int i = 0; i < size; i++) {
+                sequence.set(i, i);
+            }
+        }
+
+        boolean offer(String value) {
+            long pos = tail.get();
+            while (true) {
+                int idx = (int) (pos & mask);
+                long diff = sequence.get(idx) - pos;
+                if (diff == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        slots.set(idx, value);
+                        sequence.set(idx, pos + 1);
+                        return true;
+                    }
+                    pos = tail.get();
+                } else if (diff < 0) {
+                    return false; // full
+                } else {
+                    pos = tail.get();
+                }
+            }
+        }
+
+        String poll() {
+            long pos = head.get();
+            while (true) {
+                int idx = (int) (pos & mask);
+                long diff = sequence.get(idx) - (pos + 1);
+                if (diff == 0) {
+                    if (head.compareAndSet(pos, pos + 1)) {
+                        String value = slots.getAndSet(idx, null);
+                        sequence.set(idx, pos + mask + 1);
+                        return value;
+                    }
+                    pos = head.get();
+                } else if (diff < 0) {
+                    return null; // empty
+                } else {
+                    pos = head.get();
+                }
+            }
+        }
+
+        int size() {
+            long n = tail.get() - head.get();
+            return (int) Math.max(0, Math.min(n, mask + 1));
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package burp.parammutator.util;
+
+import burp.parammutator.model.MutationMode;
+import burp.parammutator.model.ParamMutatorRule;
+import burp.parammutator.model.RandomType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Registry of RandomPools, shared by every RANDOM rule with the same (type, length),
+// and the single daemon thread that keeps them topped up.
+public final class RandomPools {
+
+    private static final int POOL_CAPACITY = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // a pool the active config no longer uses stays registered (and refilled) until it has served
+    // nothing for this long, so requests still running on the previous snapshot keep their pooled values
+    static final long RETIRE_GRACE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final ConcurrentHashMap<String, RandomPool> pools = new ConcurrentHashMap<>();
+    // pools dropped from the config, by key; only the refill thread expires them
+    private static final ConcurrentHashMap<String, Retired> retired = new ConcurrentHashMap<>();
+    private static volatile Thread refiller;
+    // set on extension unload; from then on no pool is registered and no refill thread is started,
+    // so a request still in flight cannot leave a thread behind that pins the extension's classloader
+    private static volatile boolean shutdown;
+
+    private RandomPools() { }
+
+    public static RandomPool forRule(RandomType type, int length) {
+        RandomType t = type == null ? RandomType.ALPHANUM : type;
+        // UUID ignores length and every other type is generated with at least one char
+        int len = t == RandomType.UUID ? 0 : Math.max(length, 1);
+        if (shutdown) {
+            // unregistered and never refilled: every value is generated inline
+            return new RandomPool(t, len, 2);
+        }
+        String key = t + ":" + len;
+        RandomPool pool = pools.computeIfAbsent(key, k -> new RandomPool(t, len, POOL_CAPACITY));
+        if (!retired.isEmpty()) {
+            retired.remove(key);
+        }
+        ensureRefiller();
+        if (pool.isLow()) {
+            wakeRefiller();
+        }
+        return pool;
+    }
+
+    // Retires pools no RANDOM rule of the new config uses any more; they are dropped once idle for
+    // RETIRE_GRACE_NANOS. A pool the new config uses again is taken back.
+    public static void retain(Collection<ParamMutatorRule> rules) {
+        Set<String> keep = new HashSet<>();
+        for (ParamMutatorRule r : rules) {
+            if (r.getMutationMode() == MutationMode.RANDOM) {
+                RandomPool p = r.getRandomPool();
+                keep.add(p.getType() + ":" + p.getLength());
+            }
+        }
+        long now = System.nanoTime();
+        for (Map.Entry<String, RandomPool> e : pools.entrySet()) {
+            if (keep.contains(e.getKey())) {
+                retired.remove(e.getKey());
+            } else {
+                retired.putIfAbsent(e.getKey(), new Retired(e.getValue(), now));
+            }
+        }
+    }
+
+    // Refill thread (and tests). Drops retired pools that served no value for the grace period.
+    static void expireRetired(long now) {
+        for (Map.Entry<String, Retired> e : retired.entrySet()) {
+            Retired r = e.getValue();
+            long uses = r.pool.getServed() + r.pool.getInline();
+            if (uses != r.uses) {
+                // still used by requests of an older snapshot
+                r.uses = uses;
+                r.idleSince = now;
+            } else if (now - r.idleSince >= RETIRE_GRACE_NANOS && retired.remove(e.getKey(), r)) {
+                pools.remove(e.getKey(), r.pool);
+            }
+        }
+    }
+
+    private static final class Retired {
+        final RandomPool pool;
+        long uses;
+        long idleSince;
+
+        Retired(RandomPool pool, long now) {
+            this.pool = pool;
+            this.uses = pool.getServed() + pool.getInline();
+            this.idleSince = now;
+        }
+    }
+
+    public static List<RandomPool> snapshot() {
+        return new ArrayList<>(pools.values());
+    }
+
+    static void wakeRefiller() {
+        Thread t = refiller;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    public static synchronized void shutdown() {
+        shutdown = true;
+        Thread t = refiller;
+        refiller = null;
+        if (t != null) {
+            t.interrupt();
+        }
+        pools.clear();
+        retired.clear();
+    }
+
+    private static void ensureRefiller() {
+        if (refiller != null) {
+            return;
+        }
+        synchronized (RandomPools.class) {
+            if (refiller != null || shutdown) {
+                return;
+            }
+            Thread t = new Thread(RandomPools::refillLoop, "ParamMutator-random-refill");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            refiller = t;
+            t.start();
+        }
+    }
+
+    private static void refillLoop() {
+        Thread self = Thread.currentThread();
+        while (refiller == self && !self.isInterrupted()) {
+            for (RandomPool pool : pools.values()) {
+                if (pool.isLow()) {
+                    pool.refill();
+                }
+            }
+            if (!retired.isEmpty()) {
+                expireRetired(System.nanoTime());
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package burp.parammutator.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Selectors into a structured body (JSON pointers, XML element paths) of many rules merged into one trie.
+// A segment is a literal, '*' (any one member, element or index) or '**' (zero or more levels).
+// Unlike PathTrie it is walked incrementally while a document is streamed: the caller keeps one
+// State per open container and steps it with each member name or array index it enters.
+public final class SelectorTrie {
+
+    private static final class Node {
+        final Map<String, Node> literal = new HashMap<>();
+        Node anySegment;
+        // '**' child; a deep node also consumes any segment and stays put
+        Node deep;
+        boolean isDeep;
+        final BitSet ids = new BitSet();
+    }
+
+    // Set of trie nodes reached by the segments walked so far; immutable, so it can be kept on a stack.
+    public static final class State {
+        private final Node[] nodes;
+
+        private State(Node[] nodes) {
+            this.nodes = nodes;
+        }
+
+        // true if no selector can match at or below this point; the subtree can be skipped
+        public boolean isDead() {
+            return nodes.length == 0;
+        }
+    }
+
+    private static final State DEAD = new State(new Node[0]);
+
+    private final Node root = new Node();
+    private boolean empty = true;
+
+    public void add(String[] segments, int id) {
+        Node n = root;
+        for (String seg : segments) {
+            if (seg.equals("**")) {
+                if (n.deep == null) {
+                    n.deep = new Node();
+                    n.deep.isDeep = true;
+                }
+                n = n.deep;
+            } else if (seg.equals("*")) {
+                if (n.anySegment == null) {
+                    n.anySegment = new Node();
+                }
+                n = n.anySegment;
+            } else {
+                n = n.literal.computeIfAbsent(seg, k -> new Node());
+            }
+        }
+        n.ids.set(id);
+        empty = false;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    // state at the document root
+    public State start() {
+        if (empty) {
+            return DEAD;
+        }
+        List<Node> out = new ArrayList<>(4);
+        addWithClosure(out, root);
+        return new State(out.toArray(new Node[0]));
+    }
+
+    // state after entering the member or element named 'segment'
+    public State step(State state, String segment) {
+        if (state.nodes.length == 0) {
+            return DEAD;
+        }
+        List<Node> out = new ArrayList<>(4);
+        for (Node node : state.nodes) {
+            Node lit = node.literal.isEmpty() ? null : node.literal.get(segment);
+            if (lit != null) {
+                addWithClosure(out, lit);
+            }
+            if (node.anySegment != null) {
+                addWithClosure(out, node.anySegment);
+            }
+            if (node.isDeep) {
+                addWithClosure(out, node);
+            }
+        }
+        return out.isEmpty() ? DEAD : new State(out.toArray(new Node[0]));
+    }
+
+    // state after a step that wildcards never match (XML attributes); only literal segments are followed
+    public State stepLiteral(State state, String segment) {
+        List<Node> out = null;
+        for (Node node : state.nodes) {
+            Node lit = node.literal.isEmpty() ? null : node.literal.get(segment);
+            if (lit != null) {
+                if (out == null) {
+                    out = new ArrayList<>(2);
+                }
+                addWithClosure(out, lit);
+            }
+        }
+        return out == null ? DEAD : new State(out.toArray(new Node[0]));
+    }
+
+    // state after entering array element 'index'; the index is only turned into a string when a
+    // literal segment could match it
+    public State stepIndex(State state, int index) {
+        for (Node node : state.nodes) {
+            if (!node.literal.isEmpty()) {
+                return step(state, Integer.toString(index));
+            }
+        }
+        return step(state, "");
+    }
+
+    // ORs the ids of all selectors ending at this state into 'into'; returns true if any did
+    public boolean collect(State state, BitSet into) {
+        boolean any = false;
+        for (Node node : state.nodes) {
+            if (!node.ids.isEmpty()) {
+                into.or(node.ids);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    // adds the node and, for '**' children, the deep node reached by consuming zero segments
+    private static void addWithClosure(List<Node> out, Node node) {
+        for (Node n : out) {
+            if (n == node) {
+                return;
+            }
+        }
+        out.add(node);
+        if (node.deep != null) {
+            addWithClosure(out, node.deep);
+        }
+    }
+}
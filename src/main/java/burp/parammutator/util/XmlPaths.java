@@ -0,0 +1,67 @@
+package burp.parammutator.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// XPath-like selectors as used by XML rules: '/'-separated element names, '*' for any one element,
+// '//' for any depth, and a final '@name' for an attribute, e.g. /Envelope/Body/*/password or //item/@sku.
+// Names are matched by local name, so namespace prefixes in the selector are ignored. A trailing
+// text() step is accepted and dropped; predicates and axes are not supported.
+public final class XmlPaths {
+
+    private XmlPaths() { }
+
+    // Splits a selector into segments; '//' becomes a '**' segment, attributes keep their '@'.
+    public static String[] parse(String selector) {
+        String p = selector == null ? "" : selector.trim();
+        if (p.isEmpty() || p.charAt(0) != '/') {
+            throw new IllegalArgumentException("Invalid XML path '" + p + "': must start with '/'");
+        }
+        if (p.indexOf('[') >= 0 || p.indexOf("::") >= 0) {
+            throw new IllegalArgumentException("Invalid XML path '" + p + "': predicates and axes are not supported");
+        }
+        List<String> segments = new ArrayList<>();
+        int i = 0;
+        while (i < p.length()) {
+            // p.charAt(i) == '/'
+            if (i + 1 < p.length() && p.charAt(i + 1) == '/') {
+                segments.add("**");
+                i++;
+            }
+            int start = i + 1;
+            int slash = p.indexOf('/', start);
+            int end = slash < 0 ? p.length() : slash;
+            String seg = p.substring(start, end).trim();
+            if (seg.isEmpty()) {
+                throw new IllegalArgumentException("Invalid XML path '" + p + "': empty step");
+            }
+            boolean last = slash < 0;
+            if (seg.equals("text()")) {
+                if (!last) {
+                    throw new IllegalArgumentException("Invalid XML path '" + p + "': text() must be the last step");
+                }
+                if (segments.isEmpty() || segments.get(segments.size() - 1).equals("**")) {
+                    throw new IllegalArgumentException("Invalid XML path '" + p + "': text() needs an element step");
+                }
+            } else if (seg.charAt(0) == '@') {
+                if (!last) {
+                    throw new IllegalArgumentException("Invalid XML path '" + p + "': an attribute must be the last step");
+                }
+                String name = localName(seg.substring(1));
+                if (name.isEmpty() || name.equals("*")) {
+                    throw new IllegalArgumentException("Invalid XML path '" + p + "': attributes must be named");
+                }
+                segments.add("@" + name);
+            } else {
+                segments.add(localName(seg));
+            }
+            i = end;
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    private static String localName(String qname) {
+        int colon = qname.indexOf(':');
+        return colon < 0 ? qname : qname.substring(colon + 1);
+    }
+}
@@ -0,0 +1,48 @@
+package burp.parammutator.http;
+
+import burp.api.montoya.http.HttpService;
+import burp.parammutator.model.Origin;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class OriginCacheTest {
+
+    private static HttpService service(String host, int port, boolean secure) {
+        return (HttpService) Proxy.newProxyInstance(HttpService.class.getClassLoader(),
+                new Class<?>[]{HttpService.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "host" -> host;
+                    case "port" -> port;
+                    case "secure" -> secure;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    @Test
+    void freshServiceObjectsForTheSameTargetHit() {
+        OriginCache cache = new OriginCache();
+        Origin first = cache.resolve(service("example.com", 443, true));
+        Origin second = cache.resolve(service("example.com", 443, true));
+
+        assertSame(first, second);
+        assertEquals("https://example.com", first.getKey());
+    }
+
+    @Test
+    void differentTargetsGetTheirOwnOrigin() {
+        OriginCache cache = new OriginCache();
+        Origin https = cache.resolve(service("example.com", 443, true));
+        Origin http = cache.resolve(service("example.com", 443, false));
+        Origin other = cache.resolve(service("example.org", 443, true));
+
+        assertNotSame(https, http);
+        assertEquals("http://example.com:443", http.getKey());
+        assertEquals("https://example.org", other.getKey());
+    }
+}
@@ -0,0 +1,72 @@
+package burp.parammutator.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestTemplatesTest {
+
+    private static byte[] message(int id, int size) {
+        byte[] head = ("POST /t/" + id + " HTTP/1.1\r\nHost: example.com\r\n\r\nv=${x}&pad=")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        byte[] raw = new byte[Math.max(size, head.length)];
+        System.arraycopy(head, 0, raw, 0, head.length);
+        for (int i = head.length; i < raw.length; i++) {
+            raw[i] = 'a';
+        }
+        return raw;
+    }
+
+    @Test
+    void promotesOnSecondSighting() {
+        RequestTemplates templates = new RequestTemplates();
+        byte[] raw = message(1, 0);
+
+        assertNull(templates.lookup(raw));
+        RequestTemplates.Entry entry = templates.lookup(raw);
+        assertNotNull(entry);
+        assertSame(entry, templates.lookup(raw.clone()));
+    }
+
+    @Test
+    void concurrentSendsStayWithinByteBudget() throws Exception {
+        RequestTemplates templates = new RequestTemplates();
+        int size = RequestTemplates.MAX_TEMPLATE_BYTES;
+        AtomicLong maxSeen = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        byte[] raw = message(thread * 1000 + i, size);
+                        templates.lookup(raw);
+                        templates.lookup(raw);
+                        maxSeen.accumulateAndGet(templates.totalBytes(), Math::max);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        // a reservation may be visible briefly before it is rolled back, at most one message per thread
+        assertTrue(maxSeen.get() <= RequestTemplates.MAX_TOTAL_BYTES + 16L * size, "peak " + maxSeen.get());
+        assertTrue(templates.totalBytes() <= RequestTemplates.MAX_TOTAL_BYTES, "final " + templates.totalBytes());
+    }
+}
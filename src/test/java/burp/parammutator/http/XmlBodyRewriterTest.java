@@ -0,0 +1,67 @@
+package burp.parammutator.http;
+
+import burp.parammutator.log.ParamLog;
+import burp.parammutator.model.BodyRules;
+import burp.parammutator.model.ExtensionConfig;
+import burp.parammutator.model.MutationMode;
+import burp.parammutator.model.Origin;
+import burp.parammutator.model.ParamMutatorRule;
+import burp.parammutator.model.PathMatchMode;
+import burp.parammutator.model.Position;
+import burp.parammutator.model.RandomType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class XmlBodyRewriterTest {
+
+    private static BodyRules.Scope scope(String selector) {
+        ParamMutatorRule rule = new ParamMutatorRule(selector, ParamMutatorRule.ParamPatternType.XML,
+                MutationMode.STRING, RandomType.NUMERIC, Position.SUFFIX, 0, "!", null, null,
+                false, "", PathMatchMode.EXACT, "");
+        ExtensionConfig cfg = new ExtensionConfig(List.of(rule), true);
+        return cfg.getIndex().getXmlRules().forRequest(new Origin(false, "example.com", 80), "/");
+    }
+
+    @Test
+    void repeatedSiblingsGetDistinctLocations() throws Exception {
+        byte[] body = "<a><pw>x</pw><pw>y</pw><b><pw>z</pw></b><b><pw>w</pw></b></a>".getBytes(StandardCharsets.UTF_8);
+        List<String> locations = new ArrayList<>();
+        byte[] out = XmlBodyRewriter.rewrite(body, scope("//pw"), (location, value, rules) -> {
+            locations.add(location);
+            return value + "!";
+        });
+
+        assertEquals(List.of("/a/pw[1]", "/a/pw[2]", "/a/b[1]/pw[1]", "/a/b[2]/pw[1]"), locations);
+        assertEquals("<a><pw>x!</pw><pw>y!</pw><b><pw>z!</pw></b><b><pw>w!</pw></b></a>",
+                new String(out, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void repeatedAttributesCarryTheirElementPosition() throws Exception {
+        byte[] body = "<order><item sku=\"1\"/><item sku=\"2\"/></order>".getBytes(StandardCharsets.UTF_8);
+        List<String> locations = new ArrayList<>();
+        XmlBodyRewriter.rewrite(body, scope("/order/item/@sku"), (location, value, rules) -> {
+            locations.add(location);
+            return value + "!";
+        });
+
+        assertEquals(List.of("/order/item[1]/@sku", "/order/item[2]/@sku"), locations);
+    }
+
+    @Test
+    void repeatedSiblingsAreLoggedSeparately() throws Exception {
+        byte[] body = "<a><pw>x</pw><pw>y</pw></a>".getBytes(StandardCharsets.UTF_8);
+        ParamLog log = new ParamLog();
+        XmlBodyRewriter.rewrite(body, scope("/a/pw"), (location, value, rules) -> {
+            log.add(location, value + "!", ParamLog.Kind.MUTATED);
+            return value + "!";
+        });
+
+        assertEquals("{\"/a/pw[1]\":\"x!\",\"/a/pw[2]\":\"y!\"}", log.toJson());
+    }
+}
@@ -0,0 +1,82 @@
+package burp.parammutator.log;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoggerDiskStoreTest {
+
+    private final Logger logger = Logger.getInstance();
+
+    @AfterEach
+    void tearDown() {
+        logger.disableDiskStore();
+        logger.clear();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static long segmentFiles(Path dir) throws Exception {
+        try (var files = Files.list(dir)) {
+            return files.filter(f -> f.toString().endsWith(".dat") || f.toString().endsWith(".idx")).count();
+        }
+    }
+
+    @Test
+    void clearAndDisableHandOverToTheWriter(@TempDir Path dir) throws Exception {
+        logger.setLogLevel(LogLevel.DEBUG);
+        logger.enableDiskStore(dir);
+        for (int i = 0; i < 1000; i++) {
+            logger.log(LogLevel.INFO, "https://example.com", "/a", "row " + i);
+        }
+        await(() -> logger.getDiskRowCount() == 1000);
+
+        logger.clear();
+        assertEquals(0, logger.getDiskRowCount());
+        logger.log(LogLevel.INFO, "https://example.com", "/a", "after clear");
+        await(() -> logger.getDiskRowCount() == 1);
+
+        List<String> rows = new ArrayList<>();
+        logger.forEachRow(e -> rows.add(e.message()));
+        assertEquals(List.of("after clear"), rows);
+
+        logger.disableDiskStore();
+        assertFalse(logger.isDiskStoreEnabled());
+        await(() -> {
+            try {
+                return segmentFiles(dir) == 0;
+            } catch (Exception ex) {
+                return false;
+            }
+        });
+    }
+
+    @Test
+    void diskStoreCanBeReenabledRightAfterDisable(@TempDir Path dir) throws Exception {
+        logger.enableDiskStore(dir);
+        logger.disableDiskStore();
+        logger.enableDiskStore(dir);
+        logger.log(LogLevel.INFO, "https://example.com", "/b", "kept");
+        await(() -> logger.getDiskRowCount() == 1);
+
+        List<String> rows = new ArrayList<>();
+        logger.forEachRow(e -> rows.add(e.message()));
+        assertEquals(List.of("kept"), rows);
+    }
+}
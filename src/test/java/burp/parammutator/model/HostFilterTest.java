@@ -0,0 +1,49 @@
+package burp.parammutator.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostFilterTest {
+
+    @Test
+    void bareIpv6LiteralIsAHostNotHostAndPort() {
+        HostFilter loopback = new HostFilter("::1");
+        assertTrue(loopback.matches(new Origin(false, "::1", 80)));
+        assertTrue(loopback.matches(new Origin(true, "[::1]", 8443)));
+
+        HostFilter linkLocal = new HostFilter("FE80::1");
+        assertTrue(linkLocal.matches(new Origin(true, "fe80::1", 443)));
+        assertFalse(linkLocal.matches(new Origin(true, "fe80::2", 443)));
+    }
+
+    @Test
+    void bracketedIpv6LiteralMayCarryAPort() {
+        HostFilter f = new HostFilter("https://[::1]:8443/");
+        assertTrue(f.matches(new Origin(true, "::1", 8443)));
+        assertTrue(f.matches(new Origin(true, "[::1]", 8443)));
+        assertFalse(f.matches(new Origin(true, "::1", 443)));
+        assertFalse(f.matches(new Origin(false, "::1", 8443)));
+
+        assertTrue(new HostFilter("[::1]").matches(new Origin(false, "::1", 8080)));
+        assertThrows(IllegalArgumentException.class, () -> new HostFilter("[::1"));
+        assertThrows(IllegalArgumentException.class, () -> new HostFilter("[::1]8443"));
+    }
+
+    @Test
+    void hostAndPortStillSplit() {
+        HostFilter f = new HostFilter("api.example.com:8443");
+        assertTrue(f.matches(new Origin(true, "api.example.com", 8443)));
+        assertFalse(f.matches(new Origin(true, "api.example.com", 443)));
+        assertTrue(new HostFilter("*:8080").matches(new Origin(false, "anything", 8080)));
+    }
+
+    @Test
+    void originKeyBracketsBareIpv6() {
+        assertEquals("https://[::1]:8443", new Origin(true, "::1", 8443).getKey());
+        assertEquals("http://[::1]", new Origin(false, "[::1]", 80).getKey());
+    }
+}
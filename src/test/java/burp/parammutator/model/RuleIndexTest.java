@@ -0,0 +1,43 @@
+package burp.parammutator.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleIndexTest {
+
+    private static final Origin ORIGIN = new Origin(true, "example.com", 443);
+
+    private static ParamMutatorRule regexRule(String regex) {
+        return new ParamMutatorRule(regex, true, RandomType.NUMERIC, Position.PREFIX, 4, null, null);
+    }
+
+    @Test
+    void abortedRegexMatchIsNotCachedAsMiss() {
+        ParamMutatorRule catastrophic = regexRule("(.*a){20}b");
+        ExtensionConfig cfg = new ExtensionConfig(List.of(catastrophic), true);
+        RuleIndex.PathScope scope = cfg.getIndex().forRequest(ORIGIN, "/");
+        String name = "a".repeat(40);
+
+        assertTrue(scope.rulesFor(name).isEmpty());
+        assertTrue(scope.rulesFor(name).isEmpty());
+
+        assertEquals(2, catastrophic.getPatternStats().getAborted());
+    }
+
+    @Test
+    void provenResultsAreCachedPerName() {
+        ParamMutatorRule token = regexRule("tok.*");
+        ExtensionConfig cfg = new ExtensionConfig(List.of(token), true);
+        RuleIndex.PathScope scope = cfg.getIndex().forRequest(ORIGIN, "/");
+
+        assertEquals(List.of(token), scope.rulesFor("token"));
+        long evaluated = token.getPatternStats().getMatches();
+        assertEquals(List.of(token), scope.rulesFor("token"));
+
+        assertEquals(evaluated, token.getPatternStats().getMatches());
+    }
+}
@@ -0,0 +1,32 @@
+package burp.parammutator.util;
+
+import burp.parammutator.model.CodecOp;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CodecPipelineTest {
+
+    @Test
+    void caseRunOnAsciiEndsWithLastOp() {
+        CodecPipeline p = CodecPipeline.compileEncode(List.of(CodecOp.UPPERCASE, CodecOp.LOWERCASE));
+        assertEquals("mixed-case_1", p.apply("MiXeD-Case_1"));
+    }
+
+    @Test
+    void caseRunOnNonAsciiAppliesEveryOp() {
+        CodecPipeline p = CodecPipeline.compileEncode(List.of(CodecOp.UPPERCASE, CodecOp.LOWERCASE));
+        assertEquals("ß".toUpperCase().toLowerCase(), p.apply("ß"));
+        assertEquals("strasse", p.apply("Straße"));
+    }
+
+    @Test
+    void caseOpsAreKeptInCompiledChain() {
+        CodecPipeline p = CodecPipeline.compileDecode(
+                List.of(CodecOp.BASE64_DECODE, CodecOp.UPPERCASE, CodecOp.NO_OP, CodecOp.LOWERCASE));
+        assertEquals(List.of(CodecOp.BASE64_DECODE, CodecOp.UPPERCASE, CodecOp.LOWERCASE), p.getOps());
+        assertEquals("hi", p.apply("SGk="));
+    }
+}
@@ -0,0 +1,80 @@
+package burp.parammutator.util;
+
+import burp.parammutator.model.ParamMutatorRule;
+import burp.parammutator.model.Position;
+import burp.parammutator.model.RandomType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RandomPoolsTest {
+
+    private static ParamMutatorRule randomRule(RandomType type, int length) {
+        return new ParamMutatorRule("p", false, type, Position.SUFFIX, length, null, null);
+    }
+
+    @Test
+    void configSwapKeepsPoolOfInFlightRequests() throws Exception {
+        // unusual lengths so no other test shares these pools
+        ParamMutatorRule oldRule = randomRule(RandomType.HEX, 37);
+        ParamMutatorRule newRule = randomRule(RandomType.ALPHA, 41);
+        RandomPool pool = oldRule.getRandomPool();
+
+        // requests that started on the old snapshot keep drawing from the old rule's pool
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> inFlight = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread t = new Thread(() -> {
+                while (running.get()) {
+                    oldRule.getRandomPool().next();
+                    Thread.onSpinWait();
+                }
+            });
+            t.start();
+            inFlight.add(t);
+        }
+        try {
+            Thread.sleep(50);
+            RandomPools.retain(List.of(newRule));
+            long refilledAtSwap = pool.getRefilled();
+
+            assertTrue(RandomPools.snapshot().contains(pool), "retired pool must stay registered");
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (pool.getRefilled() == refilledAtSwap) {
+                assertTrue(System.nanoTime() < deadline, "retired pool is no longer refilled");
+                Thread.sleep(5);
+            }
+            assertSame(pool, oldRule.getRandomPool());
+        } finally {
+            running.set(false);
+            for (Thread t : inFlight) {
+                t.join();
+            }
+        }
+
+        // once nothing draws from it for the grace period, the pool is dropped
+        long now = System.nanoTime();
+        RandomPools.expireRetired(now);
+        assertTrue(RandomPools.snapshot().contains(pool));
+        RandomPools.expireRetired(now + 2 * RandomPools.RETIRE_GRACE_NANOS);
+        assertFalse(RandomPools.snapshot().contains(pool));
+    }
+
+    @Test
+    void poolUsedAgainByNewConfigIsNotRetired() {
+        ParamMutatorRule rule = randomRule(RandomType.NUMERIC, 43);
+        RandomPool pool = rule.getRandomPool();
+
+        RandomPools.retain(List.of());
+        RandomPools.retain(List.of(rule));
+        RandomPools.expireRetired(System.nanoTime() + 2 * RandomPools.RETIRE_GRACE_NANOS);
+
+        assertTrue(RandomPools.snapshot().contains(pool));
+    }
+}